@@ -0,0 +1,87 @@
+package de.emn4tor;
+
+import de.emn4tor.path.InterpolationMode;
+import de.emn4tor.path.SpeedProfile;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The line-splitting parser that ScriptParser replaced, kept as a baseline for its benchmark
+ * Only understands name, world, waypoint and speed lines, which is all the generated
+ * benchmark scripts contain. The result is baked the same way, so the two can be compared directly.
+ */
+final class BaselineScriptParser {
+    private BaselineScriptParser() {
+    }
+
+    static DriveScript parseScript(String fileName, byte[] content) throws IOException {
+        String name = fileName.replace(".cdrive", "");
+        List<double[]> waypoints = new ArrayList<>();
+        double speed = 5.0;
+        String worldName = null;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split(":", 2);
+                if (parts.length != 2) {
+                    continue;
+                }
+
+                String key = parts[0].trim().toLowerCase();
+                String value = parts[1].trim();
+                switch (key) {
+                    case "name":
+                        name = value;
+                        break;
+                    case "world":
+                        worldName = value;
+                        break;
+                    case "waypoint":
+                        waypoints.add(parseWaypoint(value));
+                        break;
+                    case "speed":
+                        speed = Double.parseDouble(value);
+                        break;
+                }
+            }
+        }
+
+        int count = waypoints.size();
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] z = new double[count];
+        float[] yaw = new float[count];
+        float[] pitch = new float[count];
+        for (int i = 0; i < count; i++) {
+            double[] waypoint = waypoints.get(i);
+            x[i] = waypoint[0];
+            y[i] = waypoint[1];
+            z[i] = waypoint[2];
+            yaw[i] = (float) waypoint[3];
+            pitch[i] = (float) waypoint[4];
+        }
+        return new DriveScript(fileName, name, worldName, x, y, z, yaw, pitch,
+                SpeedProfile.constant(speed), InterpolationMode.LINEAR);
+    }
+
+    private static double[] parseWaypoint(String waypoint) {
+        String[] coords = waypoint.split(",");
+        double x = Double.parseDouble(coords[0]);
+        double y = Double.parseDouble(coords[1]);
+        double z = Double.parseDouble(coords[2]);
+        float yaw = coords.length >= 4 ? Float.parseFloat(coords[3]) : 0f;
+        float pitch = coords.length >= 5 ? Float.parseFloat(coords[4]) : 0f;
+        return new double[] {x, y, z, yaw, pitch};
+    }
+}
@@ -0,0 +1,141 @@
+package de.emn4tor;
+
+import de.emn4tor.scheduler.BukkitTaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Headless stand-ins for the Bukkit types the benchmarks touch
+ */
+final class BenchmarkStubs {
+    private BenchmarkStubs() {
+    }
+
+    /**
+     * Create a player that accepts teleports and messages without a server
+     * @param location The location the player starts at
+     * @return The stub player
+     */
+    static Player player(Location location) {
+        return player(location, target -> { });
+    }
+
+    /**
+     * Create a player that reports every location it is teleported or turned to
+     * The player keeps the last location it was sent, so frames it already shows can be skipped.
+     * @param location The location the player starts at, updated as the player moves
+     * @param onTeleport Receives the player's location after every teleport or rotation, which the caller may not keep
+     * @return The stub player
+     */
+    static Player player(Location location, Consumer<Location> onTeleport) {
+        UUID uuid = UUID.randomUUID();
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLocation" -> {
+                        if (args != null && args[0] instanceof Location into) {
+                            copy(location, into);
+                            yield into;
+                        }
+                        yield location.clone();
+                    }
+                    case "getUniqueId" -> uuid;
+                    case "getName" -> "Bench-" + uuid;
+                    case "teleport" -> {
+                        if (args[0] instanceof Location target) {
+                            copy(target, location);
+                            onTeleport.accept(location);
+                        }
+                        yield true;
+                    }
+                    case "setRotation" -> {
+                        location.setYaw((Float) args[0]);
+                        location.setPitch((Float) args[1]);
+                        onTeleport.accept(location);
+                        yield null;
+                    }
+                    case "isOnline", "isValid", "hasPermission" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubPlayer";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static void copy(Location from, Location to) {
+        to.setWorld(from.getWorld());
+        to.setX(from.getX());
+        to.setY(from.getY());
+        to.setZ(from.getZ());
+        to.setYaw(from.getYaw());
+        to.setPitch(from.getPitch());
+    }
+
+    /**
+     * Create a command sender with every permission
+     * @return The stub sender
+     */
+    static CommandSender sender() {
+        return (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(), new Class<?>[] {CommandSender.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hasPermission" -> true;
+                    case "getName" -> "BenchSender";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSender";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * Create a plugin instance without going through the plugin loader
+     * Only the managers are set up and onEnable is never called. The instance builds on the
+     * stand-in JavaPlugin of the benchmarks, so its config is empty and it has no server.
+     * @return The stub plugin with an empty drive manager
+     */
+    static AquilaCine plugin() {
+        try {
+            AquilaCine plugin = new AquilaCine();
+            setField(plugin, "taskScheduler", new BukkitTaskScheduler(plugin));
+            setField(plugin, "driveManager", new CameraDriveManager(plugin));
+            return plugin;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create stub plugin", e);
+        }
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = AquilaCine.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return type == float.class ? (Object) 0f : (Object) 0.0;
+    }
+}
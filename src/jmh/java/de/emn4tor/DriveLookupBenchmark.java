@@ -0,0 +1,68 @@
+package de.emn4tor;
+
+import de.emn4tor.commands.CameraDriveCommand;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drive lookups and tab completion against a large library
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DriveLookupBenchmark {
+    private static final String[] PREFIXES = {"Lobby", "Arena", "Event", "Season"};
+
+    @Param({"1000", "10000"})
+    public int driveCount;
+
+    private CameraDriveManager manager;
+    private CameraDriveCommand command;
+    private CommandSender sender;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() throws ScriptParseException {
+        AquilaCine plugin = BenchmarkStubs.plugin();
+        manager = plugin.getDriveManager();
+        command = new CameraDriveCommand(plugin);
+        sender = BenchmarkStubs.sender();
+
+        DriveScript script = new ScriptParser(plugin).parseScript("bench.cdrive", ScriptParserBenchmark.generate(20, 1L));
+        List<DriveInfo> drives = new ArrayList<>(driveCount);
+        names = new String[driveCount];
+        for (int i = 0; i < driveCount; i++) {
+            names[i] = PREFIXES[i % PREFIXES.length] + "Drive" + i;
+            drives.add(new DriveInfo(names[i], names[i] + ".cdrive", null, script.getWaypointCount(),
+                    script.getPath().getLength(), script.getPath().getDuration(), script.getSpeed()));
+        }
+        manager.replaceDrives(drives);
+    }
+
+    @Benchmark
+    public DriveInfo getDrive() {
+        next = (next + 1) % names.length;
+        return manager.getDrive(names[next]);
+    }
+
+    @Benchmark
+    public List<String> tabCompleteEmpty() {
+        return command.onTabComplete(sender, null, "cameradrive", new String[] {"start", ""});
+    }
+
+    @Benchmark
+    public List<String> tabCompletePrefix() {
+        return command.onTabComplete(sender, null, "cameradrive", new String[] {"start", "arenadrive12"});
+    }
+}
@@ -0,0 +1,85 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading small hand-written and huge generated scripts
+ * {@link #parseScript()} covers a whole load, {@link #bakePath()} only the baking part of it,
+ * so the time spent on the text is the difference between the two. {@link #parseScriptBaseline()}
+ * loads the same script with the line-splitting parser ScriptParser replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScriptParserBenchmark {
+    @Param({"10", "100000"})
+    public int waypoints;
+
+    private ScriptParser parser;
+    private byte[] script;
+    private DriveScript parsed;
+
+    @Setup
+    public void setup() throws ScriptParseException {
+        parser = new ScriptParser(BenchmarkStubs.plugin());
+        script = generate(waypoints, 42L);
+        parsed = parser.parseScript("bench.cdrive", script);
+    }
+
+    @Benchmark
+    public DriveScript parseScript() throws ScriptParseException {
+        return parser.parseScript("bench.cdrive", script);
+    }
+
+    @Benchmark
+    public DriveScript parseScriptBaseline() throws IOException {
+        return BaselineScriptParser.parseScript("bench.cdrive", script);
+    }
+
+    @Benchmark
+    public BakedPath bakePath() {
+        return BakedPath.bake(parsed.getX(), parsed.getY(), parsed.getZ(), parsed.getYaw(), parsed.getPitch(),
+                parsed.getSpeedProfile(), parsed.getInterpolation().getInterpolator());
+    }
+
+    /**
+     * Generate a script that wanders around in one-block steps
+     * @param waypoints The number of waypoints
+     * @param seed The random seed
+     * @return The script contents
+     */
+    static byte[] generate(int waypoints, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(waypoints * 48);
+        builder.append("# Generated benchmark drive\n");
+        builder.append("name: Bench").append(seed).append('\n');
+        builder.append("world: world\n\n");
+
+        double x = 0, y = 64, z = 0;
+        for (int i = 0; i < waypoints; i++) {
+            x += random.nextDouble() * 2 - 1;
+            y += random.nextDouble() - 0.5;
+            z += random.nextDouble() * 2 - 1;
+            if (i % 10 == 0) {
+                builder.append("# Segment ").append(i / 10).append('\n');
+            }
+            builder.append(String.format(Locale.ROOT, "waypoint: %.3f,%.3f,%.3f,%.1f,%.1f%n",
+                    x, y, z, random.nextDouble() * 360, random.nextDouble() * 90 - 45));
+        }
+        builder.append("\nspeed: 10\n");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package de.emn4tor;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One server tick worth of session updates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionTickBenchmark {
+    @Param({"1", "150", "1000"})
+    public int sessionCount;
+
+    private AquilaCine plugin;
+    private CameraDrive drive;
+    private Player[] players;
+    private CameraDrive.CameraDriveSession[] sessions;
+
+    @Setup
+    public void setup() throws ScriptParseException {
+        plugin = BenchmarkStubs.plugin();
+        DriveScript script = new ScriptParser(plugin).parseScript("bench.cdrive", ScriptParserBenchmark.generate(500, 7L));
+        drive = script.bind(null);
+
+        players = new Player[sessionCount];
+        sessions = new CameraDrive.CameraDriveSession[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            players[i] = BenchmarkStubs.player(new Location(null, 0, 64, 0));
+            sessions[i] = new CameraDrive.CameraDriveSession(players[i], drive, plugin);
+            sessions[i].seek(0);
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        for (int i = 0; i < sessions.length; i++) {
+            if (!sessions[i].tick()) {
+                // Rewind finished sessions so the measurement stays on the per-tick path
+                sessions[i].seek(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package de.emn4tor;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Headless simulation of the session tick loop
+ * Plays thousands of sessions over many generated drives through the real
+ * CameraDriveManager for a fixed number of ticks, against stub players. Sessions
+ * that finish are replaced by a new one on the next drive, so the load stays
+ * constant. The simulation runs twice and fails if any player ends up anywhere
+ * different in the second run. Prints throughput, tick times and allocation per tick.
+ * Run with ./gradlew simulate -Psessions=10000 -Pdrives=200 -Pticks=2000, a small version
+ * runs with the tests in TickDeterminismTest.
+ */
+public final class TickSimulation {
+    private static final double[] RATES = {1.0, 1.0, 0.5, 2.0, 1.5};
+
+    private final int sessionCount;
+    private final DriveScript[] scripts;
+    private final int ticks;
+
+    /**
+     * @param sessionCount The number of players playing drives at once
+     * @param scripts The drives they play, see {@link #generateScripts(int)}
+     * @param ticks The number of ticks to run
+     */
+    TickSimulation(int sessionCount, DriveScript[] scripts, int ticks) {
+        this.sessionCount = sessionCount;
+        this.scripts = scripts;
+        this.ticks = ticks;
+    }
+
+    public static void main(String[] args) throws ScriptParseException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int drives = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        System.out.printf("Simulating %d sessions over %d drives for %d ticks%n", sessions, drives, ticks);
+
+        TickSimulation simulation = new TickSimulation(sessions, generateScripts(drives), ticks);
+        Result first = simulation.run();
+        first.print("Run 1 (warm-up)");
+        Result second = simulation.run();
+        second.print("Run 2");
+
+        int mismatches = 0;
+        for (int i = 0; i < sessions; i++) {
+            if (first.checksums[i] != second.checksums[i]) {
+                mismatches++;
+            }
+        }
+        if (mismatches > 0 || first.teleports != second.teleports) {
+            System.out.printf("FAILED: %d of %d players ended up somewhere else in the second run%n", mismatches, sessions);
+            System.exit(1);
+        }
+        System.out.printf("Deterministic: all %d players took the same path in both runs (%d teleports during ticks)%n", sessions, second.teleports);
+    }
+
+    /**
+     * Generate drives of different lengths to simulate
+     * @param drives The number of drives
+     * @return The parsed scripts, the same for every call with the same count
+     */
+    static DriveScript[] generateScripts(int drives) throws ScriptParseException {
+        AquilaCine plugin = BenchmarkStubs.plugin();
+        DriveScript[] scripts = new DriveScript[drives];
+        for (int i = 0; i < drives; i++) {
+            scripts[i] = new ScriptParser(plugin).parseScript("sim" + i + ".cdrive",
+                    ScriptParserBenchmark.generate(100 + (i % 7) * 50, i));
+        }
+        return scripts;
+    }
+
+    /**
+     * Run the simulation once on a fresh plugin
+     * @return The checksums of every player's teleports and the measurements
+     */
+    Result run() {
+        AquilaCine plugin = BenchmarkStubs.plugin();
+        CameraDriveManager manager = plugin.getDriveManager();
+        CameraDrive[] drives = new CameraDrive[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            drives[i] = scripts[i].bind(null);
+        }
+
+        long[] checksums = new long[sessionCount];
+        Player[] players = new Player[sessionCount];
+        int[] nextDrive = new int[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            int player = i;
+            players[i] = BenchmarkStubs.player(new Location(null, 0, 64, 0),
+                    target -> checksums[player] = mix(checksums[player], target));
+            nextDrive[i] = i % drives.length;
+            start(manager, plugin, players[i], drives[nextDrive[i]], i);
+        }
+
+        long stubBytes = stubAllocationPerCall(Player::teleport);
+        long lookupBytes = stubAllocationPerCall(Player::getLocation);
+        plugin.getMetrics().reset();
+        long nanos = 0;
+        long allocated = 0;
+        long sessionTicks = 0;
+        long tickTeleports = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            sessionTicks += manager.getActiveSessionCount();
+            long teleports = plugin.getMetrics().getTeleportCount();
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            manager.tickSessions();
+            nanos += System.nanoTime() - start;
+            allocated += allocatedBytes() - bytes;
+            tickTeleports += plugin.getMetrics().getTeleportCount() - teleports;
+
+            // Keep the load constant by starting the next drive for everyone who finished
+            for (int i = 0; i < sessionCount; i++) {
+                if (manager.getActiveSession(players[i]) == null) {
+                    nextDrive[i] = (nextDrive[i] + 1) % drives.length;
+                    start(manager, plugin, players[i], drives[nextDrive[i]], i);
+                }
+            }
+        }
+
+        // Rotations go through the stub player as well, and every frame looks up where the player is
+        long rotations = plugin.getMetrics().getRotationCount();
+        long frames = tickTeleports + rotations + plugin.getMetrics().getSkippedFrameCount();
+        return new Result(checksums, tickTeleports, ticks, sessionTicks, nanos, allocated,
+                allocated - (tickTeleports + rotations) * stubBytes - frames * lookupBytes, plugin);
+    }
+
+    /**
+     * Start a session part-way into its drive at one of a few rates, so sessions don't move in lockstep
+     */
+    private static void start(CameraDriveManager manager, AquilaCine plugin, Player player, CameraDrive drive, int index) {
+        CameraDrive.CameraDriveSession session = new CameraDrive.CameraDriveSession(player, drive, plugin);
+        manager.registerActiveSession(player, session);
+        session.setRate(RATES[index % RATES.length]);
+        session.seek((index * 7919L % Math.max(1, drive.getPath().getFrameCount() / 2)) / (double) 20);
+    }
+
+    private static long mix(long hash, Location target) {
+        hash = (hash ^ Double.doubleToLongBits(target.getX())) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ Double.doubleToLongBits(target.getY())) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ Double.doubleToLongBits(target.getZ())) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ Float.floatToIntBits(target.getYaw())) * 0x9E3779B97F4A7C15L;
+        return (hash ^ Float.floatToIntBits(target.getPitch())) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Measure what a call costs inside the stub player itself, so it can be left out of the tick path's allocation
+     * @param call The call to measure, such as a teleport
+     * @return The bytes the stub allocates per call
+     */
+    private static long stubAllocationPerCall(BiConsumer<Player, Location> call) {
+        Location target = new Location(null, 0, 64, 0);
+        Player player = BenchmarkStubs.player(target.clone(), location -> { });
+        for (int i = 0; i < 20_000; i++) {
+            call.accept(player, target);
+        }
+        int calls = 100_000;
+        long bytes = allocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            call.accept(player, target);
+        }
+        return (allocatedBytes() - bytes) / calls;
+    }
+
+    static final class Result {
+        private final long[] checksums;
+        private final long teleports;
+        private final long rotations;
+        private final long skippedFrames;
+        private final int ticks;
+        private final long sessionTicks;
+        private final long nanos;
+        private final long allocated;
+        private final long allocatedWithoutStubs;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        Result(long[] checksums, long teleports, int ticks, long sessionTicks, long nanos, long allocated,
+               long allocatedWithoutStubs, AquilaCine plugin) {
+            this.checksums = Arrays.copyOf(checksums, checksums.length);
+            this.teleports = teleports;
+            this.rotations = plugin.getMetrics().getRotationCount();
+            this.skippedFrames = plugin.getMetrics().getSkippedFrameCount();
+            this.ticks = ticks;
+            this.sessionTicks = sessionTicks;
+            this.nanos = nanos;
+            this.allocated = allocated;
+            this.allocatedWithoutStubs = allocatedWithoutStubs;
+            this.p50 = plugin.getMetrics().getTickTimes().getPercentile(50);
+            this.p99 = plugin.getMetrics().getTickTimes().getPercentile(99);
+            this.max = plugin.getMetrics().getTickTimes().getMax();
+        }
+
+        /**
+         * Get a hash of every teleport each player received, in order
+         * @return The checksums, indexed by player
+         */
+        long[] getChecksums() {
+            return checksums;
+        }
+
+        /**
+         * Get the number of teleports sent while ticking
+         * @return The teleports, not counting the ones that started sessions
+         */
+        long getTeleports() {
+            return teleports;
+        }
+
+        void print(String label) {
+            System.out.printf("%s: %.1f us per tick (p50 %.1f us, p99 %.1f us, max %.1f us), %.2f M session ticks/s%n",
+                    label, nanos / 1_000.0 / ticks, p50 / 1_000.0, p99 / 1_000.0, max / 1_000.0,
+                    sessionTicks * 1_000.0 / nanos);
+            System.out.printf("%s: %,d bytes allocated per tick, %,d without the stub players%n",
+                    label, allocated / ticks, Math.max(0, allocatedWithoutStubs) / ticks);
+            System.out.printf("%s: %,d teleports, %,d rotations and %,d skipped frames during ticks%n",
+                    label, teleports, rotations, skippedFrames);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.bukkit.plugin.java;
+
+import org.bukkit.Server;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginBase;
+import java.util.logging.Logger;
+
+/**
+ * Headless stand-in for Paper's JavaPlugin, ahead of the real one on the benchmark and test classpath
+ * Paper only lets a plugin class loader create plugins, this one can be created with new.
+ * It implements what the benchmarks reach: an empty config, a console logger and no server.
+ * Everything else stays abstract and fails if it is ever called.
+ */
+public abstract class JavaPlugin extends PluginBase {
+    private final FileConfiguration config = new YamlConfiguration(); // every lookup falls back to its default
+    private final Logger logger = Logger.getLogger("AquilaCine");
+
+    public FileConfiguration getConfig() {
+        return config;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    public Server getServer() {
+        return null;
+    }
+}
@@ -1,15 +1,21 @@
 package de.emn4tor;
 
 import de.emn4tor.commands.CameraDriveCommand;
+import de.emn4tor.listeners.PlayerQuitListener;
+import de.emn4tor.metrics.DriveMetrics;
+import de.emn4tor.scheduler.TaskScheduler;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.command.PluginCommand;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.Component;
 
 public final class AquilaCine extends JavaPlugin {
+    private TaskScheduler taskScheduler;
     private CameraDriveManager driveManager;
     private ScriptManager scriptManager;
+    private RecordingManager recordingManager;
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private final DriveMetrics metrics = new DriveMetrics();
 
     @Override
     public void onEnable() {
@@ -17,14 +23,23 @@ public final class AquilaCine extends JavaPlugin {
         saveDefaultConfig();
 
         // Initialize managers
+        this.taskScheduler = TaskScheduler.create(this);
         this.driveManager = new CameraDriveManager(this);
         this.scriptManager = new ScriptManager(this);
+        this.recordingManager = new RecordingManager(this);
 
         // Register commands
         registerCommands();
 
-        // Load camera drives
+        // End drives and recordings of players who leave
+        getServer().getPluginManager().registerEvents(new PlayerQuitListener(this), this);
+
+        // Load camera drives and optionally watch for script changes
         scriptManager.loadCameraDrives();
+        scriptManager.startWatching();
+
+        // Start ticking drive sessions
+        driveManager.startTicker();
 
         getServer().getConsoleSender().sendMessage(
                 miniMessage.deserialize("<green>Camera Drives Plugin enabled!</green>")
@@ -34,7 +49,13 @@ public final class AquilaCine extends JavaPlugin {
     @Override
     public void onDisable() {
         if (driveManager != null) {
-            driveManager.stopAllDrives();
+            driveManager.shutdown();
+        }
+        if (recordingManager != null) {
+            recordingManager.shutdown();
+        }
+        if (scriptManager != null) {
+            scriptManager.shutdown();
         }
 
         getServer().getConsoleSender().sendMessage(
@@ -51,6 +72,22 @@ public final class AquilaCine extends JavaPlugin {
         }
     }
 
+    /**
+     * Get the scheduler for the server the plugin runs on
+     * @return The Folia or Bukkit task scheduler
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    /**
+     * Get the playback and script loading metrics
+     * @return The metrics
+     */
+    public DriveMetrics getMetrics() {
+        return metrics;
+    }
+
     public CameraDriveManager getDriveManager() {
         return driveManager;
     }
@@ -59,6 +96,10 @@ public final class AquilaCine extends JavaPlugin {
         return scriptManager;
     }
 
+    public RecordingManager getRecordingManager() {
+        return recordingManager;
+    }
+
     public MiniMessage getMiniMessage() {
         return miniMessage;
     }
@@ -0,0 +1,245 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import de.emn4tor.scheduler.SchedulerTask;
+import de.emn4tor.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single playback of a drive shared by any number of viewers
+ * The camera state is computed once per tick and pushed to every viewer.
+ * Players who join late pick up at the current timestamp.
+ * On Folia the playback only advances its clock, and every viewer pulls the
+ * current frame on their own region. The manager calls all other methods while
+ * holding its broadcast lock.
+ */
+public class BroadcastPlayback {
+    private final AquilaCine plugin;
+    private final CameraDrive drive;
+    private final Location cursor;
+    private final FrameEmitter emitter;
+    private final Map<Player, Location> originalLocations = new HashMap<>();
+    private final Map<Player, SchedulerTask> viewerTasks = new HashMap<>(); // Folia only
+    private Player[] viewers = new Player[8];
+    private int viewerCount = 0;
+    private CameraRig rig; // null when viewers are teleported every tick
+    private ChunkPreloader.Window preload = ChunkPreloader.Window.NONE;
+    private boolean waiting = false; // started, but the first chunk is still loading
+    private volatile int frame = 0;
+    private int cue = 0; // the next cue of the timeline to fire, not used on Folia
+
+    public BroadcastPlayback(AquilaCine plugin, CameraDrive drive) {
+        this.plugin = plugin;
+        this.drive = drive;
+        this.cursor = new Location(drive.getWorld(), 0, 0, 0);
+        this.emitter = FrameEmitter.fromConfig(plugin);
+    }
+
+    public CameraDrive getDrive() {
+        return drive;
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    /**
+     * Start the playback, showing the first frame once the chunk it is in has been loaded
+     */
+    public void start() {
+        preload = plugin.getDriveManager().getChunkPreloader().open(drive.getWorld(), drive.getPath());
+        preload.advance(0);
+        waiting = !preload.isReady();
+        if (!waiting) {
+            begin();
+        }
+    }
+
+    private void begin() {
+        // On Folia the viewers pick up the first frame themselves
+        if (!plugin.getTaskScheduler().isRegionized()) {
+            drive.getPath().apply(0, cursor);
+            plugin.getMetrics().recordTeleport(cursor, viewerCount);
+            for (int i = 0; i < viewerCount; i++) {
+                viewers[i].teleport(cursor);
+            }
+
+            // The rig is a single entity, which viewers spread over several regions could not share
+            if ("rig".equalsIgnoreCase(plugin.getConfig().getString("render-mode", "teleport"))) {
+                rig = new CameraRig(plugin.getTaskScheduler(), plugin.getMetrics(), plugin.getConfig().getInt("rig-keyframe-interval", 5));
+                rig.spawn(cursor);
+                for (int i = 0; i < viewerCount; i++) {
+                    rig.addViewer(viewers[i]);
+                }
+                rig.update(drive.getPath(), 0, 1.0, cursor);
+            }
+            cue = drive.getTimeline().dispatch(cue, 0, viewers, viewerCount, plugin);
+        }
+        frame = 1;
+    }
+
+    /**
+     * Attach a viewer, syncing them to the current timestamp
+     * @param player The player to add
+     */
+    public void addViewer(Player player) {
+        originalLocations.put(player, player.getLocation().clone());
+
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        if (scheduler.isRegionized()) {
+            viewerTasks.put(player, scheduler.runForTimer(player, new FramePuller(player),
+                    () -> plugin.getDriveManager().stopDrive(player), 1L, 1L));
+        } else if (frame > 0) {
+            // Viewers joining before the first frame is shown are moved when the playback begins
+            drive.getPath().apply(frame - 1, cursor);
+            plugin.getMetrics().recordTeleport(cursor, 1);
+            player.teleport(cursor);
+            if (rig != null) {
+                rig.addViewer(player);
+            }
+        }
+
+        if (viewerCount == viewers.length) {
+            viewers = Arrays.copyOf(viewers, viewerCount * 2);
+        }
+        viewers[viewerCount++] = player;
+        player.sendMessage(plugin.formatMessage("<green>Joined camera drive: " + drive.getName() + "</green>"));
+    }
+
+    /**
+     * Detach a viewer
+     * @param player The player to remove
+     * @return True if the player was watching this playback
+     */
+    public boolean removeViewer(Player player) {
+        for (int i = 0; i < viewerCount; i++) {
+            if (viewers[i] == player) {
+                viewers[i] = viewers[--viewerCount];
+                viewers[viewerCount] = null;
+                detach(player);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Advance the playback by one tick and push the frame to all viewers
+     * @return False once the last frame has been played
+     */
+    boolean tick() {
+        if (waiting) {
+            // Still waiting for the first chunk to load
+            if (preload.isReady()) {
+                waiting = false;
+                begin();
+            }
+            return true;
+        }
+
+        BakedPath path = drive.getPath();
+        if (frame >= path.getFrameCount()) {
+            return false;
+        }
+        preload.advance(frame);
+
+        if (plugin.getTaskScheduler().isRegionized()) {
+            // Viewers pull the frame on their own regions
+            frame++;
+            return true;
+        }
+
+        if (rig != null) {
+            rig.update(path, frame, 1.0, cursor);
+        } else {
+            // One table read for everyone, then the cheapest update per viewer
+            path.apply(frame, cursor);
+            for (int i = 0; i < viewerCount; i++) {
+                emitter.emit(viewers[i], cursor);
+            }
+        }
+        cue = drive.getTimeline().dispatch(cue, frame++, viewers, viewerCount, plugin);
+        return true;
+    }
+
+    /**
+     * Detach every viewer, optionally telling them the drive is complete
+     * @param completed Whether the playback reached its last frame
+     * @return The viewers that were detached
+     */
+    Player[] stop(boolean completed) {
+        Player[] detached = Arrays.copyOf(viewers, viewerCount);
+        Arrays.fill(viewers, 0, viewerCount, null);
+        viewerCount = 0;
+
+        for (Player viewer : detached) {
+            detach(viewer);
+            if (completed) {
+                viewer.sendMessage(plugin.formatMessage("<green>Camera drive complete!</green>"));
+            }
+        }
+        if (rig != null) {
+            rig.remove();
+            rig = null;
+        }
+        preload.close();
+        preload = ChunkPreloader.Window.NONE;
+        return detached;
+    }
+
+    private void detach(Player player) {
+        SchedulerTask task = viewerTasks.remove(player);
+        if (task != null) {
+            task.cancel();
+        }
+        if (rig != null) {
+            rig.removeViewer(player);
+        }
+
+        if (drive.getTimeline().needsRestore()) {
+            plugin.getTaskScheduler().runFor(player, () -> drive.getTimeline().restore(player));
+        }
+
+        Location originalLocation = originalLocations.remove(player);
+        if (originalLocation != null && plugin.getConfig().getBoolean("return-to-original-location", false)) {
+            plugin.getTaskScheduler().runFor(player, () -> player.teleportAsync(originalLocation));
+        }
+    }
+
+    /**
+     * Moves one viewer to the playback's current frame, running on the viewer's region
+     */
+    private class FramePuller implements Runnable {
+        private final Player player;
+        private final Location target;
+        private final FrameEmitter emitter = FrameEmitter.fromConfig(plugin);
+        private int shown = -1;
+        private int cue = -1; // the next cue to fire for this viewer, found on the first frame they see
+
+        FramePuller(Player player) {
+            this.player = player;
+            this.target = new Location(drive.getWorld(), 0, 0, 0);
+        }
+
+        @Override
+        public void run() {
+            int current = Math.min(frame, drive.getPath().getFrameCount()) - 1;
+            if (current < 0 || current == shown) {
+                return;
+            }
+            shown = current;
+            drive.getPath().apply(current, target);
+            emitter.emit(player, target);
+
+            Timeline timeline = drive.getTimeline();
+            if (cue < 0) {
+                cue = timeline.seek(current);
+            }
+            cue = timeline.dispatch(cue, current, player, plugin);
+        }
+    }
+}
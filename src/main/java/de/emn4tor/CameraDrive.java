@@ -5,21 +5,37 @@ package de.emn4tor;
  *  @created: 10.03.2025
  */
 
+import de.emn4tor.path.BakedPath;
+import de.emn4tor.scheduler.SchedulerTask;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
 import java.util.List;
-import java.util.ArrayList;
 
 public class CameraDrive {
     private final String name;
     private final List<Location> waypoints;
     private final double speed; // blocks per second
+    private final BakedPath path;
+    private final Timeline timeline;
 
     public CameraDrive(String name, List<Location> waypoints, double speed) {
+        this(name, waypoints, speed, BakedPath.bake(waypoints, speed));
+    }
+
+    public CameraDrive(String name, List<Location> waypoints, double speed, BakedPath path) {
+        this(name, waypoints, speed, path, Timeline.EMPTY);
+    }
+
+    /**
+     * @param timeline The cues fired while the drive plays
+     */
+    public CameraDrive(String name, List<Location> waypoints, double speed, BakedPath path, Timeline timeline) {
         this.name = name;
         this.waypoints = waypoints;
         this.speed = speed;
+        this.path = path;
+        this.timeline = timeline;
     }
 
     public String getName() {
@@ -34,6 +50,22 @@ public class CameraDrive {
         return speed;
     }
 
+    /**
+     * Get the precomputed per-tick trajectory of this drive
+     * @return The baked path
+     */
+    public BakedPath getPath() {
+        return path;
+    }
+
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    public World getWorld() {
+        return waypoints.get(0).getWorld();
+    }
+
     /**
      * Starts the camera drive for a player
      * @param player The player to start the drive for
@@ -56,80 +88,219 @@ public class CameraDrive {
         private final Player player;
         private final CameraDrive drive;
         private final AquilaCine plugin;
-        private int currentWaypointIndex = 0;
-        private int taskId = -1;
+        private final Location cursor;
         private final Location originalLocation;
+        private final FrameEmitter emitter;
+        private CameraRig rig; // null when the player is teleported every tick
+        private ChunkPreloader.Window preload = ChunkPreloader.Window.NONE;
+        private boolean waiting = false; // started or seeking, but the chunk at the frame is still loading
+        private boolean paused = false;
+        private double position = 0; // the next frame to show, fractional when the rate isn't 1
+        private double shown = 0; // the frame shown last
+        private double rate = 1.0; // frames played per tick
+        private int cue = 0; // the next cue of the timeline to fire
+        int slot = -1; // index in the manager's session array, -1 when not running
+        SchedulerTask task; // the player's own tick task on Folia, null on Paper
 
         public CameraDriveSession(Player player, CameraDrive drive, AquilaCine plugin) {
             this.player = player;
             this.drive = drive;
             this.plugin = plugin;
             this.originalLocation = player.getLocation().clone();
+            this.cursor = new Location(drive.getWorld(), 0, 0, 0);
+            this.emitter = FrameEmitter.fromConfig(plugin);
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        public CameraDrive getDrive() {
+            return drive;
         }
 
         public void start() {
-            // Teleport to first waypoint
-            player.teleport(drive.getWaypoints().get(0));
-
-            // Schedule the movement task
-            taskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
-                if (currentWaypointIndex >= drive.getWaypoints().size() - 1) {
-                    // End of drive
-                    stop();
-                    player.sendMessage(plugin.formatMessage("<green>Camera drive complete!</green>"));
-                    return;
-                }
+            // Request the chunks along the start of the path before the camera goes there
+            preload = plugin.getDriveManager().getChunkPreloader().open(drive.getWorld(), drive.getPath());
+            preload.advance(0);
+            waiting = !preload.isReady();
+            if (!waiting) {
+                begin();
+            }
 
-                // Get current and next waypoints
-                Location current = drive.getWaypoints().get(currentWaypointIndex);
-                Location next = drive.getWaypoints().get(currentWaypointIndex + 1);
+            // Register this session with the drive manager, which ticks it from now on
+            plugin.getDriveManager().registerActiveSession(player, this);
 
-                // Calculate distance and direction
-                double distance = current.distance(next);
-                Vector direction = next.toVector().subtract(current.toVector()).normalize();
+            player.sendMessage(plugin.formatMessage("<green>Started camera drive: " + drive.getName() + "</green>"));
+        }
 
-                // Calculate steps based on speed
-                double stepsTotal = distance / (drive.getSpeed() / 20); // 20 ticks per second
+        /**
+         * Show the current frame once the chunk it is in has been loaded
+         * Called when the drive starts and after every seek.
+         */
+        private void begin() {
+            BakedPath path = drive.getPath();
+            path.apply(position, cursor);
+            plugin.getMetrics().recordTeleport(cursor, 1);
+            plugin.getTaskScheduler().teleport(player, cursor);
 
-                // Move player along the path
-                Location playerLoc = player.getLocation();
-                Vector movement = direction.multiply(drive.getSpeed() / 20);
-                playerLoc.add(movement);
+            if (rig != null) {
+                rig.jump(path, position, cursor);
+            } else if (!plugin.getTaskScheduler().isRegionized()
+                    && "rig".equalsIgnoreCase(plugin.getConfig().getString("render-mode", "teleport"))) {
+                // Optionally let the player spectate a client-interpolated camera rig instead.
+                // Not on Folia, where the rig could be spawned in a region the player's thread doesn't own.
+                rig = new CameraRig(plugin.getTaskScheduler(), plugin.getMetrics(), plugin.getConfig().getInt("rig-keyframe-interval", 5));
+                rig.spawn(cursor);
+                rig.addViewer(player);
+                if (!paused) {
+                    rig.update(path, position, rate, cursor);
+                }
+            }
+            shown = position;
+            cue = drive.getTimeline().dispatch(cue, (int) shown, player, plugin);
+            if (!paused) {
+                position += rate;
+            }
+        }
 
-                // Interpolate yaw and pitch
-                float yawDiff = next.getYaw() - current.getYaw();
-                float pitchDiff = next.getPitch() - current.getPitch();
+        /**
+         * Jump to a point in time, keeping the session paused or playing
+         * @param seconds The time since the start of the drive
+         */
+        public void seek(double seconds) {
+            position = drive.getPath().getFrameAt(seconds);
+            shown = position;
+            cue = drive.getTimeline().seek((int) position);
+            preload.seek((int) position);
+            waiting = !preload.isReady();
+            if (!waiting) {
+                begin();
+            }
+        }
 
-                float yawStep = yawDiff / (float)stepsTotal;
-                float pitchStep = pitchDiff / (float)stepsTotal;
+        /**
+         * Hold the camera on the current frame
+         */
+        public void pause() {
+            if (paused) {
+                return;
+            }
+            paused = true;
+            if (rig != null && !waiting) {
+                // Stop the client from gliding on towards the last keyframe
+                rig.jump(drive.getPath(), position, cursor);
+            }
+        }
+
+        /**
+         * Continue playing after a pause
+         */
+        public void resume() {
+            paused = false;
+        }
 
-                playerLoc.setYaw(playerLoc.getYaw() + yawStep);
-                playerLoc.setPitch(playerLoc.getPitch() + pitchStep);
+        /**
+         * Change how fast the drive plays
+         * @param rate The number of frames played per tick, 1 for normal speed
+         */
+        public void setRate(double rate) {
+            this.rate = rate;
+            preload.setRate(rate);
+            if (rig != null) {
+                rig.resync();
+            }
+        }
+
+        public boolean isPaused() {
+            return paused;
+        }
+
+        public double getRate() {
+            return rate;
+        }
 
-                // Teleport player
-                player.teleport(playerLoc);
+        /**
+         * Get the point in time the session is at
+         * @return The time since the start of the drive in seconds
+         */
+        public double getTime() {
+            return Math.min(shown, drive.getPath().getFrameCount() - 1) / BakedPath.TICKS_PER_SECOND;
+        }
 
-                // Check if we've reached the next waypoint
-                if (playerLoc.distance(next) < 0.5) {
-                    currentWaypointIndex++;
+        /**
+         * Advance the session by one tick
+         * @return False once the last frame has been played or the player left
+         */
+        boolean tick() {
+            if (!player.isOnline()) {
+                return false;
+            }
+            if (waiting) {
+                // Still waiting for the chunk at the current frame to load
+                if (preload.isReady()) {
+                    waiting = false;
+                    begin();
+                }
+                return true;
+            }
+            if (paused) {
+                if (rig == null) {
+                    // Keep holding the player on the frame, or gravity pulls them away from the camera.
+                    // Nothing is sent while they stay put
+                    drive.getPath().apply(shown, cursor);
+                    emitter.emit(player, cursor);
                 }
-            }, 0L, 1L); // Run every tick
+                return true;
+            }
 
-            // Register this session with the drive manager
-            plugin.getDriveManager().registerActiveSession(player, this);
+            BakedPath path = drive.getPath();
+            int frame = (int) position;
+            if (frame >= path.getFrameCount()) {
+                return false;
+            }
+            preload.advance(frame);
 
-            player.sendMessage(plugin.formatMessage("<green>Started camera drive: " + drive.getName() + "</green>"));
+            if (rig != null) {
+                rig.update(path, position, rate, cursor);
+            } else {
+                // Frames are baked per tick, so this is a table read, or a blend of two frames at other rates.
+                // Holds and pans don't need a full teleport
+                path.apply(position, cursor);
+                emitter.emit(player, cursor);
+            }
+            shown = position;
+            cue = drive.getTimeline().dispatch(cue, frame, player, plugin);
+            position += rate;
+            return true;
+        }
+
+        /**
+         * Stop the session after its last frame and notify the player
+         */
+        void complete() {
+            stop();
+            if (player.isOnline()) {
+                player.sendMessage(plugin.formatMessage("<green>Camera drive complete!</green>"));
+            }
         }
 
+        /**
+         * Stop the session, must be called on the player's thread
+         */
         public void stop() {
-            if (taskId != -1) {
-                plugin.getServer().getScheduler().cancelTask(taskId);
-                taskId = -1;
-                plugin.getDriveManager().unregisterActiveSession(player);
+            preload.close();
+            preload = ChunkPreloader.Window.NONE;
+            if (plugin.getDriveManager().unregisterActiveSession(this)) {
+                if (rig != null) {
+                    rig.remove();
+                    rig = null;
+                }
+                drive.getTimeline().restore(player);
 
                 // Option to return to start location
-                if (plugin.getConfig().getBoolean("return-to-original-location", false)) {
-                    player.teleport(originalLocation);
+                if (player.isOnline() && plugin.getConfig().getBoolean("return-to-original-location", false)) {
+                    player.teleportAsync(originalLocation);
                 }
             }
         }
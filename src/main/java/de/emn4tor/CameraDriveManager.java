@@ -5,50 +5,268 @@ package de.emn4tor;
  *  @created: 10.03.2025
  */
 
+import de.emn4tor.metrics.DriveTickEvent;
+import de.emn4tor.scheduler.SchedulerTask;
+import de.emn4tor.scheduler.TaskScheduler;
 import org.bukkit.entity.Player;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.NavigableMap;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class CameraDriveManager {
     private final AquilaCine plugin;
-    private final Map<String, CameraDrive> drives = new HashMap<>();
-    private final Map<Player, CameraDrive.CameraDriveSession> activeSessions = new HashMap<>();
+    private volatile Map<String, DriveInfo> drives = new ConcurrentHashMap<>(); // index only, waypoints are loaded on demand
+    private volatile NavigableMap<String, String> driveNames = new ConcurrentSkipListMap<>(); // lower-case name -> name, for completion
+    private final Map<Player, CameraDrive.CameraDriveSession> activeSessions = new ConcurrentHashMap<>();
+
+    // Compact array of running sessions, advanced in one batch by a single shared task.
+    // Only used on Paper; on Folia every session runs on its player's own scheduler.
+    private CameraDrive.CameraDriveSession[] sessions = new CameraDrive.CameraDriveSession[16];
+    private int sessionCount = 0;
+    private SchedulerTask tickTask;
+
+    // Shared playbacks, one per drive name, each pushing the same frame to all of its viewers.
+    // Keyed by name, since an evicted drive that is loaded again is a new instance.
+    // Guarded by the broadcasts map, since players join from their own region on Folia.
+    private final Map<String, BroadcastPlayback> broadcasts = new ConcurrentHashMap<>();
+    private final Map<Player, BroadcastPlayback> broadcastViewers = new ConcurrentHashMap<>();
+    private final List<BroadcastPlayback> broadcastList = new ArrayList<>();
+
+    private final ChunkPreloader chunkPreloader;
 
     public CameraDriveManager(AquilaCine plugin) {
         this.plugin = plugin;
+        this.chunkPreloader = new ChunkPreloader(plugin);
+    }
+
+    public ChunkPreloader getChunkPreloader() {
+        return chunkPreloader;
+    }
+
+    /**
+     * Start the shared task that ticks all active sessions and broadcasts
+     * On Folia it runs on the global region and only advances broadcasts.
+     */
+    public void startTicker() {
+        if (tickTask == null) {
+            tickTask = plugin.getTaskScheduler().runGlobalTimer(this::tickSessions, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop the shared session ticker
+     */
+    public void stopTicker() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    /**
+     * Advance every active session by one tick
+     */
+    void tickSessions() {
+        if (sessionCount == 0 && broadcasts.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        DriveTickEvent event = new DriveTickEvent();
+        event.begin();
+        int ticked = sessionCount;
+
+        int i = 0;
+        while (i < sessionCount) {
+            CameraDrive.CameraDriveSession session = sessions[i];
+            if (!session.tick()) {
+                session.complete();
+            }
+
+            // A finished session is swap-removed, which moves another session into this slot
+            if (i < sessionCount && sessions[i] == session) {
+                i++;
+            }
+        }
+
+        synchronized (broadcasts) {
+            for (int b = 0; b < broadcastList.size(); b++) {
+                BroadcastPlayback playback = broadcastList.get(b);
+                if (!playback.tick()) {
+                    endBroadcast(playback, true);
+                    b--;
+                }
+            }
+            ticked += broadcastList.size();
+        }
+        plugin.getMetrics().recordTick(event, System.nanoTime() - start, ticked);
+    }
+
+    /**
+     * Add a player to the shared playback of a drive, starting one if none is running
+     * Players joining a running playback start at its current timestamp.
+     * @param player The player to add
+     * @param drive The drive to watch
+     */
+    public void joinBroadcast(Player player, CameraDrive drive) {
+        synchronized (broadcasts) {
+            String key = drive.getName().toLowerCase();
+            BroadcastPlayback playback = broadcasts.get(key);
+            if (playback == null) {
+                playback = new BroadcastPlayback(plugin, drive);
+                playback.start();
+                broadcasts.put(key, playback);
+                broadcastList.add(playback);
+            }
+
+            playback.addViewer(player);
+            broadcastViewers.put(player, playback);
+        }
+    }
+
+    /**
+     * Get the number of running shared playbacks
+     * @return The broadcast count
+     */
+    public int getBroadcastCount() {
+        return broadcasts.size();
+    }
+
+    /**
+     * Stop a shared playback and detach all of its viewers
+     * Must be called while holding the broadcasts lock.
+     * @param playback The playback to end
+     * @param completed Whether the playback reached its last frame
+     */
+    private void endBroadcast(BroadcastPlayback playback, boolean completed) {
+        broadcasts.remove(playback.getDrive().getName().toLowerCase(), playback);
+
+        // Swap-remove from the tick list
+        int index = broadcastList.indexOf(playback);
+        if (index >= 0) {
+            int last = broadcastList.size() - 1;
+            broadcastList.set(index, broadcastList.get(last));
+            broadcastList.remove(last);
+        }
+
+        for (Player viewer : playback.stop(completed)) {
+            broadcastViewers.remove(viewer);
+        }
+    }
+
+    /**
+     * Get the number of running sessions
+     * @return The active session count
+     */
+    public int getActiveSessionCount() {
+        return activeSessions.size();
     }
 
     /**
      * Register a new camera drive
-     * @param drive The drive to register
+     * @param drive The index entry of the drive
      */
-    public void registerDrive(CameraDrive drive) {
-        drives.put(drive.getName().toLowerCase(), drive);
+    public void registerDrive(DriveInfo drive) {
+        String key = drive.getName().toLowerCase();
+        drives.put(key, drive);
+        driveNames.put(key, drive.getName());
     }
 
     /**
-     * Get a camera drive by name
+     * Unregister a camera drive
+     * Sessions already playing the drive keep running.
      * @param name The name of the drive
-     * @return The camera drive, or null if not found
      */
-    public CameraDrive getDrive(String name) {
+    public void unregisterDrive(String name) {
+        String key = name.toLowerCase();
+        drives.remove(key);
+        driveNames.remove(key);
+    }
+
+    /**
+     * Unregister a camera drive if it was registered from the given script file
+     * Two files may declare the same name, and only the last one registered owns it.
+     * @param name The name of the drive
+     * @param fileName The script file the drive should come from
+     * @return True if the drive was unregistered
+     */
+    public boolean unregisterDrive(String name, String fileName) {
+        String key = name.toLowerCase();
+        DriveInfo drive = drives.get(key);
+        if (drive == null || !fileName.equals(drive.getFileName())) {
+            return false;
+        }
+        drives.remove(key);
+        driveNames.remove(key);
+        return true;
+    }
+
+    /**
+     * Get the index entry of a camera drive by name
+     * Load the drive itself with {@link ScriptManager#loadDrive(DriveInfo)}.
+     * @param name The name of the drive
+     * @return The index entry, or null if not found
+     */
+    public DriveInfo getDrive(String name) {
         return drives.get(name.toLowerCase());
     }
 
     /**
-     * Get all registered camera drives
-     * @return Collection of all camera drives
+     * Get the index entries of all registered camera drives
+     * @return Collection of all index entries
      */
-    public Collection<CameraDrive> getAllDrives() {
+    public Collection<DriveInfo> getAllDrives() {
         return drives.values();
     }
 
+    /**
+     * Find the names of the drives that start with a prefix, ignoring case
+     * A range lookup in the sorted name index, so the cost depends on the number of
+     * matches returned rather than on the size of the library.
+     * @param prefix The prefix typed so far
+     * @param limit The maximum number of names to return
+     * @return The matching drive names in alphabetical order
+     */
+    public List<String> completeDriveNames(String prefix, int limit) {
+        String from = prefix.toLowerCase();
+        List<String> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, String> entry : driveNames.tailMap(from, true).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(from)) {
+                break;
+            }
+            matches.add(entry.getValue());
+        }
+        return matches;
+    }
+
+    /**
+     * Replace all registered drives at once
+     * @param newDrives The index entries of the drives to register
+     */
+    public void replaceDrives(Collection<DriveInfo> newDrives) {
+        Map<String, DriveInfo> replacement = new ConcurrentHashMap<>();
+        for (DriveInfo drive : newDrives) {
+            replacement.put(drive.getName().toLowerCase(), drive);
+        }
+        NavigableMap<String, String> names = new ConcurrentSkipListMap<>();
+        for (DriveInfo drive : replacement.values()) {
+            names.put(drive.getName().toLowerCase(), drive.getName());
+        }
+        drives = replacement;
+        driveNames = names;
+    }
+
     /**
      * Clear all registered drives
      */
     public void clearDrives() {
         drives.clear();
+        driveNames.clear();
     }
 
     /**
@@ -57,7 +275,40 @@ public class CameraDriveManager {
      * @param session The drive session
      */
     public void registerActiveSession(Player player, CameraDrive.CameraDriveSession session) {
-        activeSessions.put(player, session);
+        CameraDrive.CameraDriveSession previous = activeSessions.put(player, session);
+        if (previous != null) {
+            detachSession(previous);
+        }
+
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        if (scheduler.isRegionized()) {
+            // Tick on the player's own region, in parallel with sessions elsewhere
+            session.task = scheduler.runForTimer(player, () -> {
+                long start = System.nanoTime();
+                DriveTickEvent event = new DriveTickEvent();
+                event.begin();
+                if (!session.tick()) {
+                    session.complete();
+                }
+                plugin.getMetrics().recordTick(event, System.nanoTime() - start, 1);
+            }, session::stop, 1L, 1L); // retired when the player is removed, which needs the same cleanup as a stop
+            return;
+        }
+
+        if (sessionCount == sessions.length) {
+            sessions = Arrays.copyOf(sessions, sessionCount * 2);
+        }
+        session.slot = sessionCount;
+        sessions[sessionCount++] = session;
+    }
+
+    /**
+     * Get a player's own drive session
+     * @param player The player
+     * @return The session, or null if the player isn't playing a drive of their own
+     */
+    public CameraDrive.CameraDriveSession getActiveSession(Player player) {
+        return activeSessions.get(player);
     }
 
     /**
@@ -65,7 +316,53 @@ public class CameraDriveManager {
      * @param player The player to unregister
      */
     public void unregisterActiveSession(Player player) {
-        activeSessions.remove(player);
+        CameraDrive.CameraDriveSession session = activeSessions.remove(player);
+        if (session != null) {
+            detachSession(session);
+        }
+    }
+
+    /**
+     * Unregister a session if it is still the player's active one
+     * @param session The session to unregister
+     * @return True if the session was registered
+     */
+    boolean unregisterActiveSession(CameraDrive.CameraDriveSession session) {
+        if (activeSessions.remove(session.getPlayer(), session)) {
+            detachSession(session);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stop ticking a session
+     * @param session The session to detach
+     */
+    private void detachSession(CameraDrive.CameraDriveSession session) {
+        if (session.task != null) {
+            session.task.cancel();
+            session.task = null;
+        } else {
+            removeSession(session);
+        }
+    }
+
+    /**
+     * Swap-remove a session from the tick array
+     * @param session The session to remove
+     */
+    private void removeSession(CameraDrive.CameraDriveSession session) {
+        int slot = session.slot;
+        if (slot < 0 || slot >= sessionCount || sessions[slot] != session) {
+            return;
+        }
+
+        CameraDrive.CameraDriveSession last = sessions[--sessionCount];
+        sessions[slot] = last;
+        last.slot = slot;
+        sessions[sessionCount] = null;
+        session.slot = -1;
     }
 
     /**
@@ -74,21 +371,56 @@ public class CameraDriveManager {
      * @return True if the player is in a session
      */
     public boolean isInDriveSession(Player player) {
-        return activeSessions.containsKey(player);
+        return activeSessions.containsKey(player) || broadcastViewers.containsKey(player);
     }
 
     /**
      * Stop all active drive sessions
      */
     public void stopAllDrives() {
-        for (CameraDrive.CameraDriveSession session : activeSessions.values()) {
+        stopAll(false);
+    }
+
+    /**
+     * Stop all active drive sessions and the ticker when the plugin is disabled
+     * Sessions are stopped right away, since tasks scheduled for their players would never run.
+     */
+    public void shutdown() {
+        stopAll(true);
+        stopTicker();
+    }
+
+    /**
+     * Stop every session and broadcast
+     * @param immediately Whether to stop sessions on the calling thread instead of their players' threads
+     */
+    private void stopAll(boolean immediately) {
+        // Stopping a session unregisters it, so iterate over a snapshot
+        for (CameraDrive.CameraDriveSession session : activeSessions.values().toArray(new CameraDrive.CameraDriveSession[0])) {
             try {
-                session.stop();
+                if (immediately) {
+                    session.stop();
+                } else {
+                    plugin.getTaskScheduler().runFor(session.getPlayer(), session::stop);
+                }
             } catch (Exception e) {
                 plugin.getLogger().warning("Error stopping drive session: " + e.getMessage());
             }
         }
-        activeSessions.clear();
+
+        synchronized (broadcasts) {
+            for (BroadcastPlayback playback : broadcastList.toArray(new BroadcastPlayback[0])) {
+                try {
+                    endBroadcast(playback, false);
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Error stopping broadcast playback: " + e.getMessage());
+                }
+            }
+            broadcasts.clear();
+            broadcastViewers.clear();
+            broadcastList.clear();
+        }
+        chunkPreloader.releaseAll();
     }
 
     /**
@@ -99,8 +431,16 @@ public class CameraDriveManager {
         CameraDrive.CameraDriveSession session = activeSessions.get(player);
         if (session != null) {
             session.stop();
-            activeSessions.remove(player);
+        }
+
+        synchronized (broadcasts) {
+            BroadcastPlayback playback = broadcastViewers.remove(player);
+            if (playback != null) {
+                playback.removeViewer(player);
+                if (playback.getViewerCount() == 0) {
+                    endBroadcast(playback, false);
+                }
+            }
         }
     }
 }
-
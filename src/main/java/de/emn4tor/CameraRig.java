@@ -0,0 +1,141 @@
+package de.emn4tor;
+
+import de.emn4tor.metrics.DriveMetrics;
+import de.emn4tor.path.BakedPath;
+import de.emn4tor.scheduler.TaskScheduler;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.ItemDisplay;
+import org.bukkit.entity.Player;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A display entity that players spectate during a drive
+ * The server only sends a keyframe every few ticks and lets the client
+ * interpolate the entity's position and rotation in between, instead of
+ * teleporting the players every tick. Any number of players can watch the
+ * same rig.
+ */
+public class CameraRig {
+    private static final int MAX_TELEPORT_DURATION = 59; // client-side limit for display teleports
+
+    private final TaskScheduler scheduler;
+    private final DriveMetrics metrics;
+    private final int keyframeInterval;
+    private final Map<Player, GameMode> viewers = new LinkedHashMap<>(); // viewer -> game mode to restore
+    private ItemDisplay display;
+    private int ticksToKeyframe = 0; // ticks until the next keyframe is due
+
+    /**
+     * @param scheduler The scheduler used to move the rig
+     * @param metrics The metrics to record keyframe teleports in
+     * @param keyframeInterval The number of ticks between keyframes
+     */
+    public CameraRig(TaskScheduler scheduler, DriveMetrics metrics, int keyframeInterval) {
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.keyframeInterval = Math.max(1, Math.min(keyframeInterval, MAX_TELEPORT_DURATION));
+    }
+
+    /**
+     * Spawn the rig at the start of the path
+     * @param start The first frame of the path
+     */
+    public void spawn(Location start) {
+        display = start.getWorld().spawn(start, ItemDisplay.class, entity -> {
+            entity.setPersistent(false);
+            entity.setTeleportDuration(keyframeInterval);
+        });
+    }
+
+    /**
+     * Attach a player to the rig
+     * @param player The player
+     */
+    public void addViewer(Player player) {
+        viewers.putIfAbsent(player, player.getGameMode());
+        player.setGameMode(GameMode.SPECTATOR);
+        player.setSpectatorTarget(display);
+    }
+
+    /**
+     * Detach a player from the rig and restore their game mode
+     * @param player The player
+     */
+    public void removeViewer(Player player) {
+        GameMode previousGameMode = viewers.remove(player);
+        if (previousGameMode != null) {
+            player.setSpectatorTarget(null);
+            player.setGameMode(previousGameMode);
+        }
+    }
+
+    /**
+     * Send the next keyframe if it is due
+     * @param path The path being played
+     * @param position The current frame, fractional when playing at another rate
+     * @param rate The number of frames played per tick
+     * @param cursor A reusable location to write frames into
+     */
+    public void update(BakedPath path, double position, double rate, Location cursor) {
+        // Re-attach players who left the camera by sneaking
+        for (Player viewer : viewers.keySet()) {
+            if (viewer.getSpectatorTarget() != display) {
+                viewer.setSpectatorTarget(display);
+            }
+        }
+
+        if (--ticksToKeyframe > 0) {
+            return;
+        }
+
+        // Aim for where the camera should be one interval from now and let the client fill in the frames
+        double target = Math.min(position + keyframeInterval * rate, path.getFrameCount() - 1);
+        if (!(target > position)) {
+            return;
+        }
+        int duration = Math.max(1, Math.min((int) Math.ceil((target - position) / rate), MAX_TELEPORT_DURATION));
+        if (display.getTeleportDuration() != duration) {
+            display.setTeleportDuration(duration);
+        }
+        path.apply(target, cursor);
+        metrics.recordTeleport(cursor, 1);
+        scheduler.teleport(display, cursor);
+        ticksToKeyframe = duration;
+    }
+
+    /**
+     * Send a fresh keyframe on the next update, such as after the rate changed
+     */
+    public void resync() {
+        ticksToKeyframe = 0;
+    }
+
+    /**
+     * Move the rig to a frame at once instead of gliding there
+     * @param path The path being played
+     * @param position The frame to show
+     * @param cursor A reusable location to write frames into
+     */
+    public void jump(BakedPath path, double position, Location cursor) {
+        display.setTeleportDuration(0);
+        path.apply(position, cursor);
+        metrics.recordTeleport(cursor, 1);
+        scheduler.teleport(display, cursor);
+        ticksToKeyframe = 0;
+    }
+
+    /**
+     * Detach all players and remove the rig
+     */
+    public void remove() {
+        for (Player viewer : viewers.keySet().toArray(new Player[0])) {
+            removeViewer(viewer);
+        }
+        if (display != null) {
+            display.remove();
+            display = null;
+        }
+    }
+}
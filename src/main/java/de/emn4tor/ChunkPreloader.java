@@ -0,0 +1,233 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the chunks ahead of running drives asynchronously and holds them with plugin chunk tickets
+ * Plugin tickets are not counted by the server, so the preloader counts how many
+ * windows need each chunk and only removes the ticket when the last one lets go.
+ * Windows may be advanced from several region threads on Folia, so the counts are synchronized.
+ */
+public class ChunkPreloader {
+    private final AquilaCine plugin;
+    private final Map<World, Map<Long, Integer>> tickets = new HashMap<>(); // world -> chunk key -> holders
+
+    public ChunkPreloader(AquilaCine plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Open a preload window for a path
+     * Returns a window that does nothing if preloading is disabled in the config.
+     * @param world The world the path is played in
+     * @param path The path being played
+     * @return The preload window
+     */
+    public Window open(World world, BakedPath path) {
+        boolean enabled = plugin.getConfig().getBoolean("preload-chunks", true);
+        int lookahead = Math.max(0, plugin.getConfig().getInt("preload-lookahead-ticks", 100));
+        int radius = Math.max(0, Math.min(plugin.getConfig().getInt("preload-radius", 1), 4));
+        return new Window(this, world, path, enabled, lookahead, radius);
+    }
+
+    /**
+     * Get the number of chunks currently held by running drives
+     * @return The ticket count
+     */
+    public synchronized int getTicketCount() {
+        int count = 0;
+        for (Map<Long, Integer> worldTickets : tickets.values()) {
+            count += worldTickets.size();
+        }
+        return count;
+    }
+
+    /**
+     * Start loading a chunk and hold it once it is loaded
+     * @param world The world of the chunk
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @return A future completing once the chunk is loaded
+     */
+    private synchronized CompletableFuture<Chunk> acquire(World world, int chunkX, int chunkZ) {
+        Map<Long, Integer> worldTickets = tickets.computeIfAbsent(world, w -> new HashMap<>());
+        long key = Chunk.getChunkKey(chunkX, chunkZ);
+        int holders = worldTickets.merge(key, 1, Integer::sum);
+
+        CompletableFuture<Chunk> future = world.getChunkAtAsync(chunkX, chunkZ);
+        if (holders == 1) {
+            future.thenAccept(chunk -> {
+                // The camera may already have passed the chunk while it was loading,
+                // or every ticket may have been released since
+                synchronized (this) {
+                    Map<Long, Integer> current = tickets.get(world);
+                    if (current != null && current.containsKey(key)) {
+                        chunk.addPluginChunkTicket(plugin);
+                    }
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Drop one hold on a chunk, removing its ticket when nobody needs it anymore
+     * @param world The world of the chunk
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     */
+    private synchronized void release(World world, int chunkX, int chunkZ) {
+        Map<Long, Integer> worldTickets = tickets.get(world);
+        if (worldTickets == null) {
+            return;
+        }
+
+        long key = Chunk.getChunkKey(chunkX, chunkZ);
+        Integer holders = worldTickets.get(key);
+        if (holders == null) {
+            return;
+        }
+        if (holders > 1) {
+            worldTickets.put(key, holders - 1);
+            return;
+        }
+
+        worldTickets.remove(key);
+        world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+        if (worldTickets.isEmpty()) {
+            tickets.remove(world);
+        }
+    }
+
+    /**
+     * Remove every ticket held by the plugin
+     */
+    public synchronized void releaseAll() {
+        for (Map.Entry<World, Map<Long, Integer>> entry : tickets.entrySet()) {
+            entry.getKey().removePluginChunkTickets(plugin);
+            entry.getValue().clear(); // loads still in flight must not add tickets afterwards
+        }
+        tickets.clear();
+    }
+
+    /**
+     * A look-ahead window over the chunks of one playing path
+     * Chunks are requested a configurable number of ticks before the camera enters
+     * them and released once the camera has moved on to the next chunk.
+     */
+    public static class Window {
+        /** A window that never loads anything, for playbacks that have not been started */
+        static final Window NONE = new Window(null, null, null, false, 0, 0);
+
+        private final ChunkPreloader preloader;
+        private final World world;
+        private final BakedPath path;
+        private final boolean enabled;
+        private final int lookahead;
+        private final int radius;
+        private double rate = 1.0; // frames played per tick
+        private int acquired = 0; // next path chunk to request
+        private int released = 0; // next path chunk to release
+        private CompletableFuture<Chunk> first; // the chunk the window starts in
+
+        private Window(ChunkPreloader preloader, World world, BakedPath path, boolean enabled, int lookahead, int radius) {
+            this.preloader = preloader;
+            this.world = world;
+            this.path = path;
+            this.enabled = enabled;
+            this.lookahead = lookahead;
+            this.radius = radius;
+        }
+
+        /**
+         * Move the window to a frame, requesting chunks ahead of it and releasing those behind it
+         * @param frame The frame the camera is at
+         */
+        public void advance(int frame) {
+            if (!enabled) {
+                return;
+            }
+
+            int horizon = frame + (int) Math.ceil(lookahead * rate);
+            int chunkCount = path.getChunkCount();
+            while (acquired < chunkCount && path.getChunkFrame(acquired) <= horizon) {
+                acquireArea(acquired++);
+            }
+
+            // Everything before the chunk the camera is in now is behind it
+            while (released + 1 < acquired && path.getChunkFrame(released + 1) <= frame) {
+                releaseArea(released++);
+            }
+        }
+
+        /**
+         * Move the window to a frame that is not next to the current one
+         * Releases every chunk held so far and starts requesting again from the new frame,
+         * so {@link #isReady()} is false until the chunk at that frame has been loaded.
+         * @param frame The frame the camera jumps to
+         */
+        public void seek(int frame) {
+            if (!enabled) {
+                return;
+            }
+            close();
+            first = null;
+            acquired = path.getChunkIndex(frame);
+            released = acquired;
+            advance(frame);
+        }
+
+        /**
+         * Scale the look-ahead to the rate the path is played at
+         * @param rate The number of frames played per tick
+         */
+        public void setRate(double rate) {
+            this.rate = Math.max(1.0, rate);
+        }
+
+        /**
+         * Check if the chunk the window starts in has been loaded
+         * @return True once the first frame can be shown without a sync chunk load
+         */
+        public boolean isReady() {
+            return first == null || first.isDone();
+        }
+
+        /**
+         * Release every chunk still held by this window
+         */
+        public void close() {
+            while (released < acquired) {
+                releaseArea(released++);
+            }
+        }
+
+        private void acquireArea(int index) {
+            int centerX = path.getChunkX(index);
+            int centerZ = path.getChunkZ(index);
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    CompletableFuture<Chunk> future = preloader.acquire(world, centerX + dx, centerZ + dz);
+                    if (index == released && dx == 0 && dz == 0) {
+                        first = future;
+                    }
+                }
+            }
+        }
+
+        private void releaseArea(int index) {
+            int centerX = path.getChunkX(index);
+            int centerZ = path.getChunkZ(index);
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    preloader.release(world, centerX + dx, centerZ + dz);
+                }
+            }
+        }
+    }
+}
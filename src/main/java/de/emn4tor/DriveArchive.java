@@ -0,0 +1,265 @@
+package de.emn4tor;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A whole drive library packed into one file, for moving it between servers
+ * The archive holds the script and track files as they are, each followed by a
+ * checksum. Files are streamed through a fixed buffer in both directions, so the
+ * size of the library doesn't matter. Must be used off the main thread.
+ */
+public final class DriveArchive {
+    public static final String EXTENSION = ".cdarchive";
+
+    private static final int MAGIC = 0x41434441; // "ACDA"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private DriveArchive() {
+    }
+
+    /**
+     * Pack script files into an archive, replacing it if it exists
+     * @param scriptFiles The files to pack
+     * @param archive The archive to write
+     * @return What was packed
+     */
+    public static Summary export(File[] scriptFiles, Path archive) throws IOException {
+        File[] files = scriptFiles.clone();
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        Path tempFile = archive.resolveSibling(archive.getFileName() + ".tmp");
+        Files.createDirectories(archive.toAbsolutePath().getParent());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long bytes = 0;
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(files.length);
+            for (File file : files) {
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    byte[] name = file.getName().getBytes(StandardCharsets.UTF_8);
+                    if (buffer.remaining() < 2 + name.length + 16) {
+                        drain(buffer, out);
+                    }
+                    buffer.putShort((short) name.length).put(name).putLong(file.lastModified()).putLong(size);
+
+                    // Stream the file through the buffer, checksumming what passes
+                    CRC32C crc = new CRC32C();
+                    long left = size;
+                    while (left > 0) {
+                        if (!buffer.hasRemaining()) {
+                            drain(buffer, out);
+                        }
+                        int start = buffer.position();
+                        int limit = (int) Math.min(buffer.limit(), start + left);
+                        buffer.limit(limit);
+                        int read = in.read(buffer);
+                        buffer.limit(buffer.capacity());
+                        if (read < 0) {
+                            throw new EOFException(file.getName() + " shrank while it was exported");
+                        }
+                        crc.update(buffer.duplicate().position(start).limit(start + read));
+                        left -= read;
+                    }
+                    if (buffer.remaining() < 8) {
+                        drain(buffer, out);
+                    }
+                    buffer.putLong(crc.getValue());
+                    bytes += size;
+                }
+            }
+            drain(buffer, out);
+            out.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Summary(files.length, bytes, List.of());
+    }
+
+    /**
+     * Unpack an archive into the scripts folder
+     * Every file is extracted and verified before any script is replaced, so a damaged
+     * archive leaves the folder untouched. Files whose contents didn't change are left as they are.
+     * @param archive The archive to read
+     * @param scriptsDir The scripts folder
+     * @return What was unpacked, with the files that changed
+     */
+    public static Summary extract(Path archive, Path scriptsDir) throws IOException {
+        List<Path> staged = new ArrayList<>();
+        List<Path> targets = new ArrayList<>();
+        List<File> changed = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long bytes = 0;
+        int count;
+
+        try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+            buffer.limit(0);
+            fill(buffer, in, 12);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a drive archive");
+            }
+            int version = buffer.getInt();
+            if (version > VERSION) {
+                throw new IOException("Archive version " + version + " is newer than the supported version " + VERSION);
+            }
+            count = buffer.getInt();
+
+            for (int i = 0; i < count; i++) {
+                fill(buffer, in, 2);
+                int nameLength = buffer.getShort() & 0xFFFF;
+                fill(buffer, in, nameLength + 16);
+                byte[] nameBytes = new byte[nameLength];
+                buffer.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+                long modified = buffer.getLong();
+                long size = buffer.getLong();
+                if (!isSafeName(name)) {
+                    throw new IOException("Archive contains an invalid file name: " + name);
+                }
+
+                // Stage next to the target, so moving it into place is a rename
+                Path target = scriptsDir.resolve(name);
+                Path temp = scriptsDir.resolve(name + ".import");
+                staged.add(temp);
+                CRC32C crc = new CRC32C();
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long left = size;
+                    while (left > 0) {
+                        if (!buffer.hasRemaining()) {
+                            buffer.clear();
+                            buffer.limit((int) Math.min(buffer.capacity(), left));
+                            if (in.read(buffer) < 0) {
+                                throw new EOFException("Archive ends inside " + name);
+                            }
+                            buffer.flip();
+                        }
+                        ByteBuffer chunk = buffer.duplicate();
+                        chunk.limit((int) Math.min(buffer.limit(), buffer.position() + left));
+                        crc.update(chunk.duplicate());
+                        int written = chunk.remaining();
+                        while (chunk.hasRemaining()) {
+                            out.write(chunk);
+                        }
+                        buffer.position(buffer.position() + written);
+                        left -= written;
+                    }
+                }
+                fill(buffer, in, 8);
+                if (buffer.getLong() != crc.getValue()) {
+                    throw new IOException("Checksum mismatch for " + name + ", the archive is damaged");
+                }
+                Files.setLastModifiedTime(temp, FileTime.fromMillis(modified));
+                targets.add(target);
+                bytes += size;
+            }
+
+            // Only replace scripts once the whole archive checked out
+            for (int i = 0; i < staged.size(); i++) {
+                Path temp = staged.get(i);
+                Path target = targets.get(i);
+                if (Files.exists(target) && Files.mismatch(temp, target) == -1) {
+                    Files.delete(temp);
+                    continue;
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                changed.add(target.toFile());
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path temp : staged) {
+                Files.deleteIfExists(temp);
+            }
+            throw e;
+        }
+        return new Summary(count, bytes, changed);
+    }
+
+    /**
+     * Check that a name from an archive is a plain script file name
+     * Anything else could write outside the scripts folder.
+     */
+    private static boolean isSafeName(String name) {
+        return ScriptManager.isScriptFile(name) && !name.startsWith(".")
+                && name.indexOf('/') < 0 && name.indexOf('\\') < 0 && name.indexOf(':') < 0;
+    }
+
+    /**
+     * Write out everything in the buffer and clear it
+     */
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Make sure the buffer holds at least the given number of unread bytes
+     */
+    private static void fill(ByteBuffer buffer, FileChannel in, int bytes) throws IOException {
+        if (bytes > buffer.capacity()) {
+            throw new IOException("Archive entry header is too large");
+        }
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Archive is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * What an export or import covered
+     */
+    public static final class Summary {
+        private final int files;
+        private final long bytes;
+        private final List<File> changed;
+
+        Summary(int files, long bytes, List<File> changed) {
+            this.files = files;
+            this.bytes = bytes;
+            this.changed = changed;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Get the scripts an import added or replaced
+         * @return The changed files, empty for an export
+         */
+        public List<File> getChanged() {
+            return changed;
+        }
+    }
+}
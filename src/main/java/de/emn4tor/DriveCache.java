@@ -0,0 +1,441 @@
+package de.emn4tor;
+
+import de.emn4tor.path.Easing;
+import de.emn4tor.path.InterpolationMode;
+import de.emn4tor.path.PathSimplifier;
+import de.emn4tor.path.PathTransform;
+import de.emn4tor.path.SpeedProfile;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Packed binary cache of parsed scripts.
+ * Entries are keyed by file name and validated by modification time, size and
+ * content hash, so unchanged scripts load without any text parsing.
+ * Every save writes a new generation of the file next to the old one, because a file that
+ * is still mapped can't be replaced on Windows. Older generations are deleted once nothing maps them.
+ */
+public class DriveCache {
+    private static final int MAGIC = 0x41434443; // "ACDC"
+    private static final int VERSION = 6;
+
+    private final AquilaCine plugin;
+    private final File cacheFile; // generations are named after it, such as drives.bin.3
+    private volatile File currentFile; // the generation that is mapped, null if there is none
+    private final double positionTolerance; // 0 when scripts aren't simplified
+    private final double angleTolerance;
+    private volatile Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * @param plugin The plugin
+     * @param cacheFile The cache file, which the generations are named after
+     * @param simplifier The simplifier the cached scripts are parsed with, or null
+     */
+    public DriveCache(AquilaCine plugin, File cacheFile, PathSimplifier simplifier) {
+        this.plugin = plugin;
+        this.cacheFile = cacheFile;
+        this.positionTolerance = simplifier != null ? simplifier.getPositionTolerance() : 0;
+        this.angleTolerance = simplifier != null ? simplifier.getAngleTolerance() : 0;
+    }
+
+    /**
+     * Map the newest generation of the cache file and read its index
+     * A missing, outdated or corrupt cache is treated as empty.
+     */
+    public void open() {
+        stamps.clear();
+        dirty = false;
+        entries = new HashMap<>();
+        currentFile = newestGeneration();
+        deleteOldGenerations();
+        if (currentFile == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(currentFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                plugin.getLogger().info("Script cache is outdated, rebuilding");
+                return;
+            }
+            if (buffer.getDouble() != positionTolerance || buffer.getDouble() != angleTolerance) {
+                plugin.getLogger().info("Simplification settings changed, rebuilding script cache");
+                return;
+            }
+
+            int count = buffer.getInt();
+            Map<String, Entry> index = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String fileName = readString(buffer);
+                Stamp stamp = new Stamp(buffer.getLong(), buffer.getLong(), buffer.getLong());
+                int length = buffer.getInt();
+
+                // Keep a view of the body and decode it only on a hit
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                index.put(fileName, new Entry(stamp, body));
+            }
+            entries = index;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Script cache is unreadable, rebuilding: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load a script from the cache, parsing it only if it changed
+     * Safe to call from several threads at once.
+     * @param scriptFile The script file
+     * @param parser The parser to use for changed scripts
+     * @return The parsed script
+     */
+    public DriveScript load(File scriptFile, ScriptParser parser) throws Exception {
+        String fileName = scriptFile.getName();
+        long modified = scriptFile.lastModified();
+        long size = scriptFile.length();
+
+        Entry entry = entries.get(fileName);
+        if (entry != null && entry.stamp.modified == modified && entry.stamp.size == size) {
+            DriveScript cached = read(fileName, entry);
+            if (cached != null) {
+                stamps.put(fileName, entry.stamp);
+                return cached;
+            }
+        }
+
+        // Timestamp changed, so compare contents before reparsing
+        byte[] content = Files.readAllBytes(scriptFile.toPath());
+        long hash = hash(content);
+        stamps.put(fileName, new Stamp(modified, size, hash));
+        dirty = true;
+
+        if (entry != null && entry.stamp.hash == hash) {
+            DriveScript cached = read(fileName, entry);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return parser.parseScript(fileName, content);
+    }
+
+    /**
+     * Rewrite the cache file if anything changed since it was opened
+     * @param scripts Every successfully loaded script
+     */
+    public void save(Collection<DriveScript> scripts) {
+        if (!dirty && scripts.size() == entries.size()) {
+            return;
+        }
+
+        File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+        File nextFile = new File(cacheFile.getParentFile(),
+                cacheFile.getName() + "." + (currentFile != null ? generationOf(currentFile) + 1 : 1));
+        cacheFile.getParentFile().mkdirs();
+        try (OutputStream stream = Files.newOutputStream(tempFile.toPath());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(positionTolerance);
+            out.writeDouble(angleTolerance);
+
+            int count = 0;
+            for (DriveScript script : scripts) {
+                if (stamps.containsKey(script.getFileName())) {
+                    count++;
+                }
+            }
+            out.writeInt(count);
+
+            for (DriveScript script : scripts) {
+                Stamp stamp = stamps.get(script.getFileName());
+                if (stamp == null) {
+                    continue;
+                }
+
+                byte[] body = write(script);
+                writeString(out, script.getFileName());
+                out.writeLong(stamp.modified);
+                out.writeLong(stamp.size);
+                out.writeLong(stamp.hash);
+                out.writeInt(body.length);
+                out.write(body);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write script cache: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        try {
+            // A new name, so the mapped generation is never replaced
+            Files.move(tempFile.toPath(), nextFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            // Map the new file, so drives loaded when they are played decode from it
+            open();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to replace script cache: " + e.getMessage());
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Find the newest generation of the cache file
+     * @return The file, or null if there is none
+     */
+    private File newestGeneration() {
+        File[] files = cacheFile.getParentFile().listFiles();
+        File newest = null;
+        if (files != null) {
+            for (File file : files) {
+                long generation = generationOf(file);
+                if (generation > 0 && (newest == null || generation > generationOf(newest))) {
+                    newest = file;
+                }
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Delete every generation but the current one
+     * A generation that is still mapped can't be deleted on Windows, so it is left for the next start.
+     */
+    private void deleteOldGenerations() {
+        File[] files = cacheFile.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            // The cache file itself is where versions before generations were written
+            if ((generationOf(file) > 0 || file.getName().equals(cacheFile.getName())) && !file.equals(currentFile)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the generation of a cache file from its name
+     * @param file The file
+     * @return The generation, or 0 if the file isn't a generation of the cache
+     */
+    private long generationOf(File file) {
+        String name = file.getName();
+        String prefix = cacheFile.getName() + ".";
+        if (!name.startsWith(prefix)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Serialize the parsed data of a script
+     * @param script The script
+     * @return The entry body
+     */
+    private static byte[] write(DriveScript script) throws IOException {
+        int count = script.getWaypointCount();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + count * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeString(out, script.getName());
+        out.writeBoolean(script.getWorldName() != null);
+        if (script.getWorldName() != null) {
+            writeString(out, script.getWorldName());
+        }
+        out.writeByte(script.getInterpolation().ordinal());
+
+        SpeedProfile speed = script.getSpeedProfile();
+        out.writeDouble(speed.getBaseSpeed());
+        out.writeInt(speed.getKeyframeCount());
+        for (int i = 0; i < speed.getKeyframeCount(); i++) {
+            out.writeInt(speed.getKeyframeWaypoint(i));
+            out.writeDouble(speed.getKeyframeSpeed(i));
+            out.writeByte(speed.getKeyframeEasing(i).ordinal());
+        }
+
+        out.writeInt(script.getOriginalWaypointCount());
+        out.writeInt(count);
+        for (double value : script.getX()) {
+            out.writeDouble(value);
+        }
+        for (double value : script.getY()) {
+            out.writeDouble(value);
+        }
+        for (double value : script.getZ()) {
+            out.writeDouble(value);
+        }
+        for (float value : script.getYaw()) {
+            out.writeFloat(value);
+        }
+        for (float value : script.getPitch()) {
+            out.writeFloat(value);
+        }
+
+        out.writeInt(script.getInstances().size());
+        for (DriveInstance instance : script.getInstances()) {
+            writeString(out, instance.getName());
+            out.writeBoolean(instance.getWorldName() != null);
+            if (instance.getWorldName() != null) {
+                writeString(out, instance.getWorldName());
+            }
+            PathTransform transform = instance.getTransform();
+            out.writeDouble(transform.getX());
+            out.writeDouble(transform.getY());
+            out.writeDouble(transform.getZ());
+            out.writeFloat(transform.getRotation());
+        }
+
+        // Cues are stored unresolved and compiled again with the path, in script order
+        out.writeInt(script.getCues().size());
+        for (Timeline.Cue cue : script.getCues()) {
+            out.writeByte(cue.getAction().ordinal());
+            out.writeInt(cue.getWaypoint());
+            out.writeDouble(cue.getSeconds());
+            writeString(out, cue.getArgument());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a cached entry, treating a corrupt entry as a miss
+     * @param fileName The name of the script file
+     * @param entry The cache entry
+     * @return The script, or null if the entry could not be decoded
+     */
+    private DriveScript read(String fileName, Entry entry) {
+        try {
+            return read(fileName, entry.body.duplicate());
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Corrupt cache entry for " + fileName + ", reparsing: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decode a cached script without any text parsing
+     * @param fileName The name of the script file
+     * @param body The entry body
+     * @return The script
+     */
+    private static DriveScript read(String fileName, ByteBuffer body) {
+        String name = readString(body);
+        String worldName = body.get() != 0 ? readString(body) : null;
+        InterpolationMode interpolation = InterpolationMode.values()[body.get()];
+
+        double baseSpeed = body.getDouble();
+        int keyframes = body.getInt();
+        int[] keyframeWaypoint = new int[keyframes];
+        double[] keyframeSpeed = new double[keyframes];
+        Easing[] keyframeEasing = new Easing[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeWaypoint[i] = body.getInt();
+            keyframeSpeed[i] = body.getDouble();
+            keyframeEasing[i] = Easing.values()[body.get()];
+        }
+        SpeedProfile speed = new SpeedProfile(baseSpeed, keyframeWaypoint, keyframeSpeed, keyframeEasing);
+
+        int originalCount = body.getInt();
+        int count = body.getInt();
+        double[] x = readDoubles(body, count);
+        double[] y = readDoubles(body, count);
+        double[] z = readDoubles(body, count);
+        float[] yaw = readFloats(body, count);
+        float[] pitch = readFloats(body, count);
+
+        int instanceCount = body.getInt();
+        List<DriveInstance> instances = new ArrayList<>(instanceCount);
+        for (int i = 0; i < instanceCount; i++) {
+            String instanceName = readString(body);
+            String instanceWorld = body.get() != 0 ? readString(body) : null;
+            PathTransform transform = new PathTransform(body.getDouble(), body.getDouble(), body.getDouble(), body.getFloat());
+            instances.add(new DriveInstance(instanceName, instanceWorld, transform));
+        }
+
+        int cueCount = body.getInt();
+        List<Timeline.Cue> cues = new ArrayList<>(cueCount);
+        for (int i = 0; i < cueCount; i++) {
+            Timeline.Cue.Action action = Timeline.Cue.Action.values()[body.get()];
+            int waypoint = body.getInt();
+            double seconds = body.getDouble();
+            cues.add(new Timeline.Cue(action, readString(body), waypoint, seconds));
+        }
+
+        return new DriveScript(fileName, name, worldName, x, y, z, yaw, pitch, speed, interpolation, originalCount,
+                List.copyOf(instances), List.copyOf(cues));
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * Float.BYTES);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long hash(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static final class Stamp {
+        private final long modified;
+        private final long size;
+        private final long hash;
+
+        private Stamp(long modified, long size, long hash) {
+            this.modified = modified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Stamp stamp;
+        private final ByteBuffer body;
+
+        private Entry(Stamp stamp, ByteBuffer body) {
+            this.stamp = stamp;
+            this.body = body;
+        }
+    }
+}
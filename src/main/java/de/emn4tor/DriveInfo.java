@@ -0,0 +1,97 @@
+package de.emn4tor;
+
+import de.emn4tor.path.PathTransform;
+
+/**
+ * The index entry of a camera drive
+ * Only a few numbers per drive, so the whole library can stay in memory while the
+ * waypoints of a drive are loaded when it is played.
+ */
+public class DriveInfo {
+    private final String name;
+    private final String fileName;
+    private final String worldName; // null if the script doesn't specify one
+    private final int waypointCount;
+    private final double length;
+    private final double duration;
+    private final double speed;
+    private final PathTransform transform; // null unless the drive is an instance of a template script
+
+    /**
+     * @param name The name of the drive
+     * @param fileName The name of the script file the drive is loaded from
+     * @param worldName The world of the drive, or null for the default world
+     * @param waypointCount The number of waypoints
+     * @param length The length of the path in blocks
+     * @param duration The duration of the drive in seconds
+     * @param speed The speed at the start of the drive in blocks per second
+     */
+    public DriveInfo(String name, String fileName, String worldName, int waypointCount,
+                     double length, double duration, double speed) {
+        this(name, fileName, worldName, waypointCount, length, duration, speed, null);
+    }
+
+    /**
+     * Describe one instance of a template script
+     * @param transform Where the instance places the template path
+     */
+    public DriveInfo(String name, String fileName, String worldName, int waypointCount,
+                     double length, double duration, double speed, PathTransform transform) {
+        this.name = name;
+        this.fileName = fileName;
+        this.worldName = worldName;
+        this.waypointCount = waypointCount;
+        this.length = length;
+        this.duration = duration;
+        this.speed = speed;
+        this.transform = transform;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public int getWaypointCount() {
+        return waypointCount;
+    }
+
+    /**
+     * Get the length of the path
+     * @return The length in blocks
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Get the duration of the drive
+     * @return The duration in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the speed at the start of the drive
+     * @return The speed in blocks per second
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Get where this drive places the path of its script
+     * @return The transform, or null if the drive is not an instance of a template script
+     */
+    public PathTransform getTransform() {
+        return transform;
+    }
+}
@@ -0,0 +1,37 @@
+package de.emn4tor;
+
+import de.emn4tor.path.PathTransform;
+
+/**
+ * One placement of a template script
+ * Declared with an {@code instance:} line. Every instance is a drive of its own,
+ * but all instances of a script share its waypoints and baked frames.
+ */
+public class DriveInstance {
+    private final String name;
+    private final String worldName; // null to use the world of the script
+    private final PathTransform transform;
+
+    /**
+     * @param name The name of the drive
+     * @param worldName The world the instance plays in, or null for the world of the script
+     * @param transform Where the instance places the path
+     */
+    public DriveInstance(String name, String worldName, PathTransform transform) {
+        this.name = name;
+        this.worldName = worldName;
+        this.transform = transform;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public PathTransform getTransform() {
+        return transform;
+    }
+}
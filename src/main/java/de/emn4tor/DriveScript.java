@@ -0,0 +1,269 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import de.emn4tor.path.InterpolationMode;
+import de.emn4tor.path.PathTransform;
+import de.emn4tor.path.SpeedProfile;
+import org.bukkit.Location;
+import org.bukkit.World;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parsed contents of a camera drive script.
+ * Holds only plain data, so it can be produced off the main thread and bound
+ * to a world later.
+ */
+public class DriveScript {
+    private final String fileName;
+    private final String name;
+    private final String worldName; // null if the script doesn't specify one
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final float[] yaw;
+    private final float[] pitch;
+    private final SpeedProfile speed;
+    private final InterpolationMode interpolation;
+    private final BakedPath path;
+    private final int originalWaypointCount; // before simplification
+    private final List<DriveInstance> instances; // empty unless the script is a template
+    private final List<Timeline.Cue> cues; // in script order
+    private final Timeline timeline;
+
+    public DriveScript(String fileName, String name, String worldName,
+                       double[] x, double[] y, double[] z, float[] yaw, float[] pitch,
+                       SpeedProfile speed, InterpolationMode interpolation) {
+        this(fileName, name, worldName, x, y, z, yaw, pitch, speed, interpolation, x.length);
+    }
+
+    /**
+     * Create a script whose waypoints were simplified
+     * @param originalWaypointCount The number of waypoints the script had before simplification
+     */
+    public DriveScript(String fileName, String name, String worldName,
+                       double[] x, double[] y, double[] z, float[] yaw, float[] pitch,
+                       SpeedProfile speed, InterpolationMode interpolation, int originalWaypointCount) {
+        this(fileName, name, worldName, x, y, z, yaw, pitch, speed, interpolation, originalWaypointCount,
+                List.of(), List.of());
+    }
+
+    /**
+     * Create a script with cues, or a template whose waypoints are relative to the anchor of each instance
+     * @param originalWaypointCount The number of waypoints the script had before simplification
+     * @param instances The placements of the template, or an empty list for a plain script
+     * @param cues The cues in script order, compiled into the timeline here
+     */
+    public DriveScript(String fileName, String name, String worldName,
+                       double[] x, double[] y, double[] z, float[] yaw, float[] pitch,
+                       SpeedProfile speed, InterpolationMode interpolation, int originalWaypointCount,
+                       List<DriveInstance> instances, List<Timeline.Cue> cues) {
+        this.fileName = fileName;
+        this.name = name;
+        this.worldName = worldName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.speed = speed;
+        this.interpolation = interpolation;
+        this.path = BakedPath.bake(x, y, z, yaw, pitch, speed, interpolation.getInterpolator());
+        this.originalWaypointCount = originalWaypointCount;
+        this.instances = instances;
+        this.cues = cues;
+        this.timeline = Timeline.compile(cues, path);
+    }
+
+    /**
+     * Create a script from a path that already has its timing, such as a recorded track
+     * The speed is the average speed of the path.
+     * @param originalWaypointCount The number of waypoints before simplification
+     */
+    public DriveScript(String fileName, String name, String worldName,
+                       double[] x, double[] y, double[] z, float[] yaw, float[] pitch, BakedPath path,
+                       int originalWaypointCount) {
+        this.fileName = fileName;
+        this.name = name;
+        this.worldName = worldName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        double averageSpeed = path.getDuration() > 0 ? path.getLength() / path.getDuration() : 0;
+        this.speed = SpeedProfile.constant(averageSpeed > 0 ? averageSpeed : 1.0);
+        this.interpolation = InterpolationMode.LINEAR;
+        this.path = path;
+        this.originalWaypointCount = originalWaypointCount;
+        this.instances = List.of();
+        this.cues = List.of();
+        this.timeline = Timeline.EMPTY;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public int getWaypointCount() {
+        return x.length;
+    }
+
+    /**
+     * Get the number of waypoints the script had before it was simplified
+     * @return The original waypoint count, equal to the waypoint count if nothing was dropped
+     */
+    public int getOriginalWaypointCount() {
+        return originalWaypointCount;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double[] getZ() {
+        return z;
+    }
+
+    public float[] getYaw() {
+        return yaw;
+    }
+
+    public float[] getPitch() {
+        return pitch;
+    }
+
+    /**
+     * Get the speed at the start of the drive
+     * @return The speed in blocks per second
+     */
+    public double getSpeed() {
+        return speed.getBaseSpeed();
+    }
+
+    public SpeedProfile getSpeedProfile() {
+        return speed;
+    }
+
+    public InterpolationMode getInterpolation() {
+        return interpolation;
+    }
+
+    public BakedPath getPath() {
+        return path;
+    }
+
+    /**
+     * Get the cues of the script as they were written
+     * @return The cues in script order
+     */
+    public List<Timeline.Cue> getCues() {
+        return cues;
+    }
+
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Get the placements of this template
+     * @return The instances, empty for a plain script
+     */
+    public List<DriveInstance> getInstances() {
+        return instances;
+    }
+
+    /**
+     * Describe this script for the drive index
+     * @return The index entry, which holds no waypoints
+     */
+    public DriveInfo toInfo() {
+        return new DriveInfo(name, fileName, worldName, x.length, path.getLength(), path.getDuration(), speed.getBaseSpeed());
+    }
+
+    /**
+     * Describe the drives of this script for the drive index
+     * A template registers one drive per instance and none under its own name.
+     * @return The index entries
+     */
+    public List<DriveInfo> toInfos() {
+        if (instances.isEmpty()) {
+            return List.of(toInfo());
+        }
+
+        List<DriveInfo> infos = new ArrayList<>(instances.size());
+        for (DriveInstance instance : instances) {
+            infos.add(new DriveInfo(instance.getName(), fileName,
+                    instance.getWorldName() != null ? instance.getWorldName() : worldName,
+                    x.length, path.getLength(), path.getDuration(), speed.getBaseSpeed(), instance.getTransform()));
+        }
+        return infos;
+    }
+
+    /**
+     * Bind this script to a world, creating the camera drive
+     * Must be called on the main thread.
+     * @param world The world the drive takes place in
+     * @return The camera drive
+     */
+    public CameraDrive bind(World world) {
+        List<Location> waypoints = new ArrayList<>(x.length);
+        for (int i = 0; i < x.length; i++) {
+            waypoints.add(new Location(world, x[i], y[i], z[i], yaw[i], pitch[i]));
+        }
+        return new CameraDrive(name, waypoints, speed.getBaseSpeed(), path, timeline);
+    }
+
+    /**
+     * Bind one instance of this template to a world
+     * The drive shares the waypoints and frames of this script and places them when
+     * they are read, so an instance costs a few objects instead of a copy of the path.
+     * Must be called on the main thread.
+     * @param name The name of the instance
+     * @param world The world the instance takes place in
+     * @param transform Where the instance places the path
+     * @return The camera drive
+     */
+    public CameraDrive instantiate(String name, World world, PathTransform transform) {
+        return new CameraDrive(name, new PlacedWaypoints(world, transform), speed.getBaseSpeed(),
+                path.instantiate(transform), timeline);
+    }
+
+    /**
+     * The waypoints of an instance, placed as they are read
+     * Not static, so a loaded instance keeps its template reachable for the next instance to share.
+     */
+    private final class PlacedWaypoints extends AbstractList<Location> {
+        private final World world;
+        private final PathTransform transform;
+
+        private PlacedWaypoints(World world, PathTransform transform) {
+            this.world = world;
+            this.transform = transform;
+        }
+
+        @Override
+        public Location get(int index) {
+            return new Location(world, transform.applyX(x[index], z[index]), transform.applyY(y[index]),
+                    transform.applyZ(x[index], z[index]), transform.applyYaw(yaw[index]), pitch[index]);
+        }
+
+        @Override
+        public int size() {
+            return x.length;
+        }
+    }
+}
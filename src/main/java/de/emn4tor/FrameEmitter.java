@@ -0,0 +1,138 @@
+package de.emn4tor;
+
+import de.emn4tor.metrics.DriveMetrics;
+import de.emn4tor.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+/**
+ * Sends camera frames to players with the cheapest update that shows them
+ * Every frame is compared with where the player is right now. A frame the player could
+ * not tell apart is not sent at all, a frame that only turns the view is sent as a rotation,
+ * and everything else is a teleport. Because the comparison is against the player and not
+ * against the last frame sent, slow pans still add up to an update, and a player who moved
+ * on their own is put back on the path. Not thread-safe, every tick loop keeps its own.
+ * Servers before 1.21.2 have no packet that only turns a player, so there the rotation
+ * frames are sent as teleports, as they were before.
+ */
+public final class FrameEmitter {
+    public enum Update {
+        NONE,
+        ROTATION,
+        MOVE
+    }
+
+    private final TaskScheduler scheduler;
+    private final DriveMetrics metrics;
+    private final double positionThresholdSquared;
+    private final float angleThreshold;
+    private final boolean rotationUpdates; // false if turning a player doesn't reach their client
+    private final Location current = new Location(null, 0, 0, 0); // where the player is, reused for every check
+
+    /**
+     * @param scheduler The scheduler to move players with
+     * @param metrics The metrics to record updates in
+     * @param positionThreshold The distance in blocks the camera has to move before a teleport is sent
+     * @param angleThreshold The angle in degrees the view has to turn before a rotation is sent
+     * @param rotationUpdates Whether the server syncs a player's rotation to their client, otherwise turns are teleports
+     */
+    public FrameEmitter(TaskScheduler scheduler, DriveMetrics metrics, double positionThreshold, double angleThreshold,
+                        boolean rotationUpdates) {
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.positionThresholdSquared = positionThreshold * positionThreshold;
+        this.angleThreshold = (float) angleThreshold;
+        this.rotationUpdates = rotationUpdates;
+    }
+
+    /**
+     * Create an emitter with the thresholds from the plugin's config
+     * @param plugin The plugin
+     * @return The emitter
+     */
+    public static FrameEmitter fromConfig(AquilaCine plugin) {
+        return new FrameEmitter(plugin.getTaskScheduler(), plugin.getMetrics(),
+                Math.max(0.0, plugin.getConfig().getDouble("update-thresholds.position", 0.001)),
+                Math.max(0.0, plugin.getConfig().getDouble("update-thresholds.angle", 0.05)),
+                syncsRotation(plugin.getServer() != null ? plugin.getServer().getMinecraftVersion() : null));
+    }
+
+    /**
+     * Check if a server version sends a player's new rotation to their client
+     * The standalone player rotation packet was added in 1.21.2. Before that, turning a
+     * player only changed the server's copy of the rotation.
+     * @param version The Minecraft version, such as "1.21.1", or null if unknown
+     * @return True for 1.21.2 and later
+     */
+    static boolean syncsRotation(String version) {
+        if (version == null) {
+            return false;
+        }
+        String[] parts = version.split("[.-]");
+        int[] numbers = new int[3];
+        for (int i = 0; i < numbers.length && i < parts.length; i++) {
+            try {
+                numbers[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        if (numbers[0] != 1) {
+            return numbers[0] > 1;
+        }
+        return numbers[1] > 21 || (numbers[1] == 21 && numbers[2] >= 2);
+    }
+
+    /**
+     * Decide which update a player needs to see a frame
+     * @param player The player
+     * @param frame The camera frame
+     * @return The cheapest update that shows the frame
+     */
+    public Update classify(Player player, Location frame) {
+        player.getLocation(current);
+        if (current.getWorld() != frame.getWorld()) {
+            return Update.MOVE;
+        }
+
+        double dx = frame.getX() - current.getX();
+        double dy = frame.getY() - current.getY();
+        double dz = frame.getZ() - current.getZ();
+        if (dx * dx + dy * dy + dz * dz > positionThresholdSquared) {
+            return Update.MOVE;
+        }
+
+        // Yaw wraps around, so 359 and 1 are two degrees apart
+        float yaw = frame.getYaw() - current.getYaw();
+        yaw -= 360.0f * (float) Math.floor((yaw + 180.0f) / 360.0f);
+        if (Math.abs(yaw) > angleThreshold || Math.abs(frame.getPitch() - current.getPitch()) > angleThreshold) {
+            return rotationUpdates ? Update.ROTATION : Update.MOVE;
+        }
+        return Update.NONE;
+    }
+
+    /**
+     * Show a frame to a player, sending only what changed noticeably
+     * Must be called on the player's thread.
+     * @param player The player
+     * @param frame The camera frame, which may be reused by the caller afterwards
+     * @return The update that was sent
+     */
+    public Update emit(Player player, Location frame) {
+        Update update = classify(player, frame);
+        switch (update) {
+            case MOVE:
+                metrics.recordTeleport(frame, 1);
+                scheduler.teleport(player, frame);
+                break;
+            case ROTATION:
+                metrics.recordRotation();
+                scheduler.rotate(player, frame.getYaw(), frame.getPitch());
+                break;
+            case NONE:
+                metrics.recordSkippedFrame();
+                break;
+        }
+        return update;
+    }
+}
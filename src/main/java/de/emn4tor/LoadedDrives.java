@@ -0,0 +1,92 @@
+package de.emn4tor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of the drives whose waypoints are in memory
+ * Holds the most recently played drives and evicts the least recently played one
+ * once it is full. Sessions that are still playing an evicted drive keep their own
+ * reference to it. Loads of the same drive that overlap share one future.
+ */
+public class LoadedDrives {
+    private final int capacity;
+    private final LinkedHashMap<DriveInfo, CompletableFuture<CameraDrive>> drives;
+
+    /**
+     * @param capacity The maximum number of drives to keep loaded
+     */
+    public LoadedDrives(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.drives = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DriveInfo, CompletableFuture<CameraDrive>> eldest) {
+                return size() > LoadedDrives.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Get a loaded drive, loading it if it isn't cached
+     * @param info The index entry of the drive
+     * @param loader Loads the drive on a miss
+     * @return A future for the drive
+     */
+    public CompletableFuture<CameraDrive> get(DriveInfo info, Function<DriveInfo, CompletableFuture<CameraDrive>> loader) {
+        CompletableFuture<CameraDrive> drive;
+        synchronized (drives) {
+            drive = drives.get(info);
+            if (drive != null) {
+                return drive;
+            }
+            drive = loader.apply(info);
+            drives.put(info, drive);
+        }
+
+        // Don't keep failures around, so the next attempt loads the drive again
+        CompletableFuture<CameraDrive> loading = drive;
+        loading.whenComplete((result, error) -> {
+            if (error != null) {
+                synchronized (drives) {
+                    drives.remove(info, loading);
+                }
+            }
+        });
+        return loading;
+    }
+
+    /**
+     * Drop the drive loaded from a script file
+     * @param fileName The name of the script file
+     */
+    public void invalidate(String fileName) {
+        synchronized (drives) {
+            drives.keySet().removeIf(info -> info.getFileName().equals(fileName));
+        }
+    }
+
+    /**
+     * Drop every loaded drive
+     */
+    public void clear() {
+        synchronized (drives) {
+            drives.clear();
+        }
+    }
+
+    /**
+     * Get the number of drives in the cache
+     * @return The loaded drive count
+     */
+    public int size() {
+        synchronized (drives) {
+            return drives.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
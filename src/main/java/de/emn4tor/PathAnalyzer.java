@@ -0,0 +1,384 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Finds the parts of a drive where the camera flies through terrain or looks into a wall
+ * The only work done on the server threads is taking an immutable snapshot of every
+ * chunk the camera can see. Chunks are loaded a few at a time and never generated, so
+ * chunks that don't exist yet count as unknown terrain. The frames are then ray-marched
+ * against the snapshots on a background pool, one segment of the path per task.
+ */
+public class PathAnalyzer {
+    private static final int SEGMENT_FRAMES = 256; // frames checked by one task
+    private static final int MAX_LOADS = 8; // chunk loads requested at the same time
+    private static final double STEP = 0.25; // ray-march step in blocks
+    private static final double EYE_HEIGHT = 1.62; // a teleported player sees from eye height, a rig from its position
+
+    private final AquilaCine plugin;
+    private final Executor executor;
+    private final Executor mainThread;
+    private final double viewDistance;
+    private final double eyeHeight;
+
+    /**
+     * @param plugin The plugin
+     * @param executor The pool to run the analysis on
+     */
+    public PathAnalyzer(AquilaCine plugin, Executor executor) {
+        this.plugin = plugin;
+        this.executor = executor;
+        this.mainThread = task -> plugin.getTaskScheduler().runGlobal(task);
+        this.viewDistance = Math.max(0, Math.min(plugin.getConfig().getDouble("analyze-view-distance", 3.0), 16));
+        this.eyeHeight = "rig".equalsIgnoreCase(plugin.getConfig().getString("render-mode", "teleport")) ? 0 : EYE_HEIGHT;
+    }
+
+    /**
+     * Analyze a drive
+     * @param drive The drive to check
+     * @return A future for the report, completed on a background thread
+     */
+    public CompletableFuture<Report> analyze(CameraDrive drive) {
+        World world = drive.getWorld();
+        BakedPath path = drive.getPath();
+        long start = System.nanoTime();
+
+        return CompletableFuture.supplyAsync(() -> visibleChunks(path), executor)
+                .thenComposeAsync(chunks -> new Capture(world, chunks).start(), mainThread)
+                .thenComposeAsync(capture -> {
+                    long captured = System.nanoTime();
+                    Map<Long, ChunkSnapshot> snapshots = capture.snapshots;
+                    Terrain terrain = new Terrain(snapshots, world.getMinHeight(), world.getMaxHeight());
+
+                    List<CompletableFuture<List<Issue>>> segments = new ArrayList<>();
+                    for (int from = 0; from < path.getFrameCount(); from += SEGMENT_FRAMES) {
+                        int segmentStart = from;
+                        int segmentEnd = Math.min(from + SEGMENT_FRAMES, path.getFrameCount());
+                        segments.add(CompletableFuture.supplyAsync(
+                                () -> analyzeSegment(path, terrain, segmentStart, segmentEnd), executor));
+                    }
+
+                    return CompletableFuture.allOf(segments.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+                        List<Issue> issues = new ArrayList<>();
+                        for (CompletableFuture<List<Issue>> segment : segments) {
+                            issues.addAll(segment.join());
+                        }
+                        long finished = System.nanoTime();
+                        return new Report(path.getFrameCount(), snapshots.size(), capture.missing, merge(issues),
+                                (captured - start) / 1_000_000, (finished - captured) / 1_000_000);
+                    });
+                }, executor);
+    }
+
+    /**
+     * Collect every chunk the camera passes through or looks into
+     * @return The chunk keys, packed as in {@link Chunk#getChunkKey(int, int)}
+     */
+    private Set<Long> visibleChunks(BakedPath path) {
+        Set<Long> chunks = new HashSet<>();
+        double[] ray = new double[3];
+        for (int frame = 0; frame < path.getFrameCount(); frame++) {
+            int next = Math.min(frame + 1, path.getFrameCount() - 1);
+            direction(path.getYaw(frame), path.getPitch(frame), ray);
+            double endX = path.getX(frame) + ray[0] * viewDistance;
+            double endZ = path.getZ(frame) + ray[2] * viewDistance;
+
+            int minX = chunk(Math.min(Math.min(path.getX(frame), path.getX(next)), endX));
+            int maxX = chunk(Math.max(Math.max(path.getX(frame), path.getX(next)), endX));
+            int minZ = chunk(Math.min(Math.min(path.getZ(frame), path.getZ(next)), endZ));
+            int maxZ = chunk(Math.max(Math.max(path.getZ(frame), path.getZ(next)), endZ));
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    chunks.add(Chunk.getChunkKey(x, z));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Snapshots a set of chunks, with at most {@link #MAX_LOADS} loads in flight
+     * Each snapshot is taken on the thread that owns the chunk. Chunks that were never
+     * generated are counted as missing instead of being generated for the analysis.
+     */
+    private static final class Capture {
+        private final World world;
+        private final Iterator<Long> keys;
+        private final CompletableFuture<Capture> done = new CompletableFuture<>();
+        final Map<Long, ChunkSnapshot> snapshots;
+        int missing = 0;
+        private int inFlight = 0;
+        private boolean requesting = false; // guards against recursion when loads complete at once
+
+        Capture(World world, Set<Long> chunks) {
+            this.world = world;
+            this.keys = chunks.iterator();
+            this.snapshots = new HashMap<>(chunks.size() * 2);
+        }
+
+        CompletableFuture<Capture> start() {
+            request();
+            return done;
+        }
+
+        /**
+         * Request chunks until the limit is reached, completing once every chunk is in
+         * Loads of chunks that are already loaded complete right away and call back in here,
+         * so only the outermost call does the requesting.
+         */
+        private void request() {
+            synchronized (this) {
+                if (requesting) {
+                    return;
+                }
+                requesting = true;
+            }
+            while (true) {
+                long key;
+                synchronized (this) {
+                    if (inFlight >= MAX_LOADS || !keys.hasNext()) {
+                        requesting = false;
+                        if (inFlight == 0 && !keys.hasNext()) {
+                            done.complete(this);
+                        }
+                        return;
+                    }
+                    key = keys.next();
+                    inFlight++;
+                }
+                world.getChunkAtAsync((int) key, (int) (key >> 32), false).whenComplete((chunk, error) -> {
+                    ChunkSnapshot snapshot = chunk != null ? chunk.getChunkSnapshot(false, false, false) : null;
+                    synchronized (this) {
+                        inFlight--;
+                        if (snapshot != null) {
+                            snapshots.put(key, snapshot);
+                        } else {
+                            missing++;
+                        }
+                    }
+                    request();
+                });
+            }
+        }
+    }
+
+    /**
+     * Ray-march one segment of the path
+     * @return The issues in the segment, one per frame
+     */
+    private List<Issue> analyzeSegment(BakedPath path, Terrain terrain, int from, int to) {
+        List<Issue> issues = new ArrayList<>();
+        double[] ray = new double[3];
+        for (int frame = from; frame < to; frame++) {
+            double x = path.getX(frame);
+            double y = path.getY(frame) + eyeHeight;
+            double z = path.getZ(frame);
+
+            // The camera passes through every point between this frame and the next one
+            int next = Math.min(frame + 1, path.getFrameCount() - 1);
+            double dx = path.getX(next) - x;
+            double dy = path.getY(next) + eyeHeight - y;
+            double dz = path.getZ(next) - z;
+            int steps = Math.max(1, (int) Math.ceil(Math.sqrt(dx * dx + dy * dy + dz * dz) / STEP));
+            for (int step = 0; step < steps; step++) {
+                double t = (double) step / steps;
+                Material block = terrain.blockAt(x + dx * t, y + dy * t, z + dz * t);
+                if (block != null && block.isSolid()) {
+                    issues.add(new Issue(Issue.Kind.COLLISION, frame, frame, x, y, z));
+                    break;
+                }
+            }
+
+            // Anything opaque right in front of the lens hides the scene
+            direction(path.getYaw(frame), path.getPitch(frame), ray);
+            for (double distance = STEP; distance <= viewDistance; distance += STEP) {
+                Material block = terrain.blockAt(x + ray[0] * distance, y + ray[1] * distance, z + ray[2] * distance);
+                if (block != null && block.isOccluding()) {
+                    issues.add(new Issue(Issue.Kind.VIEW_BLOCKED, frame, frame, x, y, z));
+                    break;
+                }
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * Join issues of the same kind on consecutive frames into one
+     */
+    private static List<Issue> merge(List<Issue> issues) {
+        issues.sort(Comparator.comparing((Issue issue) -> issue.kind).thenComparingInt(issue -> issue.startFrame));
+        List<Issue> merged = new ArrayList<>();
+        Issue current = null;
+        for (Issue issue : issues) {
+            if (current != null && current.kind == issue.kind && issue.startFrame <= current.endFrame + 1) {
+                current = new Issue(current.kind, current.startFrame, issue.endFrame, current.x, current.y, current.z);
+                merged.set(merged.size() - 1, current);
+            } else {
+                current = issue;
+                merged.add(current);
+            }
+        }
+        merged.sort(Comparator.comparingInt(issue -> issue.startFrame));
+        return merged;
+    }
+
+    /**
+     * Get the direction the camera looks in, as Minecraft computes it from yaw and pitch
+     */
+    private static void direction(float yaw, float pitch, double[] out) {
+        double yawRadians = Math.toRadians(yaw);
+        double pitchRadians = Math.toRadians(pitch);
+        double horizontal = Math.cos(pitchRadians);
+        out[0] = -Math.sin(yawRadians) * horizontal;
+        out[1] = -Math.sin(pitchRadians);
+        out[2] = Math.cos(yawRadians) * horizontal;
+    }
+
+    private static int chunk(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+
+    /**
+     * Read-only block lookups over the captured snapshots, shared by all segment tasks
+     */
+    private static final class Terrain {
+        private final Map<Long, ChunkSnapshot> snapshots;
+        private final int minY;
+        private final int maxY;
+
+        Terrain(Map<Long, ChunkSnapshot> snapshots, int minY, int maxY) {
+            this.snapshots = snapshots;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        /**
+         * Get the block at a point
+         * @return The block type, or null outside the world or the captured chunks
+         */
+        Material blockAt(double x, double y, double z) {
+            int blockY = (int) Math.floor(y);
+            if (blockY < minY || blockY >= maxY) {
+                return null;
+            }
+            int blockX = (int) Math.floor(x);
+            int blockZ = (int) Math.floor(z);
+            ChunkSnapshot snapshot = snapshots.get(Chunk.getChunkKey(blockX >> 4, blockZ >> 4));
+            return snapshot != null ? snapshot.getBlockType(blockX & 15, blockY, blockZ & 15) : null;
+        }
+    }
+
+    /**
+     * A stretch of the path with the same problem
+     */
+    public static final class Issue {
+        public enum Kind {
+            COLLISION,
+            VIEW_BLOCKED
+        }
+
+        private final Kind kind;
+        private final int startFrame;
+        private final int endFrame;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        Issue(Kind kind, int startFrame, int endFrame, double x, double y, double z) {
+            this.kind = kind;
+            this.startFrame = startFrame;
+            this.endFrame = endFrame;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public double getStartTime() {
+            return (double) startFrame / BakedPath.TICKS_PER_SECOND;
+        }
+
+        public double getEndTime() {
+            return (double) endFrame / BakedPath.TICKS_PER_SECOND;
+        }
+
+        /**
+         * Get where the camera is when the issue starts
+         * @return The eye position as "x, y, z"
+         */
+        public String getPosition() {
+            return String.format("%.1f, %.1f, %.1f", x, y, z);
+        }
+    }
+
+    /**
+     * The result of analyzing one drive
+     */
+    public static final class Report {
+        private final int frames;
+        private final int chunks;
+        private final int missingChunks;
+        private final List<Issue> issues;
+        private final long captureMillis;
+        private final long analysisMillis;
+
+        Report(int frames, int chunks, int missingChunks, List<Issue> issues, long captureMillis, long analysisMillis) {
+            this.frames = frames;
+            this.chunks = chunks;
+            this.missingChunks = missingChunks;
+            this.issues = issues;
+            this.captureMillis = captureMillis;
+            this.analysisMillis = analysisMillis;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Get the number of chunks the camera sees that were never generated
+         * Nothing is reported inside them, since there is no terrain to check against yet.
+         * @return The number of skipped chunks
+         */
+        public int getMissingChunks() {
+            return missingChunks;
+        }
+
+        public List<Issue> getIssues() {
+            return issues;
+        }
+
+        /**
+         * Get the time from the start of the analysis until every snapshot was taken
+         * @return The time in milliseconds, mostly spent waiting for chunks to load
+         */
+        public long getCaptureMillis() {
+            return captureMillis;
+        }
+
+        public long getAnalysisMillis() {
+            return analysisMillis;
+        }
+    }
+}
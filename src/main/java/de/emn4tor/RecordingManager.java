@@ -0,0 +1,141 @@
+package de.emn4tor;
+
+import org.bukkit.entity.Player;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps track of running flight recordings
+ * All recordings share one writer thread, so the main thread never touches the disk.
+ */
+public class RecordingManager {
+    private final AquilaCine plugin;
+    private final ExecutorService writer;
+    private final Map<Player, TrackRecorder> recordings = new ConcurrentHashMap<>();
+    private final Set<String> names = ConcurrentHashMap.newKeySet(); // lower-case names being recorded or saved
+
+    public RecordingManager(AquilaCine plugin) {
+        this.plugin = plugin;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AquilaCine-TrackWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check if a player is recording a flight
+     * @param player The player to check
+     * @return True if the player is recording
+     */
+    public boolean isRecording(Player player) {
+        return recordings.containsKey(player);
+    }
+
+    /**
+     * Start recording a player's flight into a new track
+     * @param player The player to record
+     * @param name The name of the drive to create
+     * @return False if another recording with that name is running or still being saved
+     */
+    public boolean startRecording(Player player, String name) {
+        if (!names.add(name.toLowerCase())) {
+            return false;
+        }
+        int maxSeconds = Math.max(1, plugin.getConfig().getInt("record-max-seconds", 1800));
+        File target = new File(plugin.getScriptManager().getScriptsDirectory(), name + TrackFormat.EXTENSION);
+        TrackRecorder recorder = new TrackRecorder(player, name, target, writer, maxSeconds * 20);
+        recordings.put(player, recorder);
+        recorder.start();
+
+        recorder.task = plugin.getTaskScheduler().runForTimer(player, () -> {
+            if (!recorder.sample()) {
+                stopRecording(player);
+            }
+        }, () -> stopRecording(player), 1L, 1L);
+        return true;
+    }
+
+    /**
+     * Stop a player's recording and load the track as a drive
+     * @param player The player whose recording to stop
+     * @return A future that completes once the track is saved and registered, or null if the player wasn't recording
+     */
+    public CompletableFuture<TrackRecorder> stopRecording(Player player) {
+        TrackRecorder recorder = recordings.remove(player);
+        if (recorder == null) {
+            return null;
+        }
+        if (recorder.task != null) {
+            recorder.task.cancel();
+        }
+
+        CompletableFuture<TrackRecorder> finished = finish(recorder)
+                .thenCompose(file -> plugin.getScriptManager().reloadScripts(List.of(file)))
+                .thenApply(result -> recorder);
+        finished.whenComplete((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                player.sendMessage(plugin.formatMessage("<red>Failed to save recording " + recorder.getName() + ": "
+                        + cause.getMessage() + "</red>"));
+            } else {
+                player.sendMessage(plugin.formatMessage("<green>Saved recording " + recorder.getName() + " ("
+                        + String.format("%.1f", recorder.getSampleCount() / 20.0) + "s). Play it with /cameradrive start "
+                        + recorder.getName() + "</green>"));
+            }
+        });
+        return finished;
+    }
+
+    /**
+     * Write out a recording, freeing its name once the track is in place or discarded
+     */
+    private CompletableFuture<File> finish(TrackRecorder recorder) {
+        return recorder.finish().whenComplete((file, error) -> names.remove(recorder.getName().toLowerCase()));
+    }
+
+    /**
+     * Finish every recording and wait for the tracks to be written
+     * Called on shutdown, when the drives no longer need to be registered.
+     */
+    public void shutdown() {
+        List<CompletableFuture<File>> finished = new ArrayList<>();
+        for (TrackRecorder recorder : recordings.values()) {
+            if (recorder.task != null) {
+                recorder.task.cancel();
+            }
+            finished.add(finish(recorder));
+        }
+        recordings.clear();
+
+        // The last steps of a recording are queued on the writer as the writes before them complete,
+        // so the writer has to keep running until every track is in place
+        try {
+            CompletableFuture.allOf(finished.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            plugin.getLogger().warning("Failed to save a recording: " + cause.getMessage());
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning("Timed out saving recordings, " + finished.size() + " may be incomplete");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,19 +1,66 @@
 package de.emn4tor;
 
+import de.emn4tor.metrics.ScriptLoadEvent;
+import de.emn4tor.path.PathSimplifier;
 import org.bukkit.World;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ScriptManager {
     private final AquilaCine plugin;
+    private final PathSimplifier simplifier; // null when simplification is disabled
     private final ScriptParser scriptParser;
+    private final DriveCache driveCache;
+    private final LoadedDrives loadedDrives;
     private final File scriptsDir;
+    private final File archivesDir;
+    private final ExecutorService loaderPool;
+    private final Executor mainThread; // the global region on Folia
+    private final Map<String, List<String>> driveFiles = new HashMap<>(); // script file name -> drive names
+    private final Map<String, WeakReference<DriveScript>> templates = new ConcurrentHashMap<>(); // kept alive by their loaded instances
+    private CompletableFuture<LoadResult> pendingLoad;
+    private ScriptWatcher watcher;
 
     public ScriptManager(AquilaCine plugin) {
         this.plugin = plugin;
-        this.scriptParser = new ScriptParser(plugin);
+        this.simplifier = createSimplifier();
+        this.scriptParser = new ScriptParser(plugin, simplifier);
         this.scriptsDir = new File(plugin.getDataFolder(), "scripts");
+        this.archivesDir = new File(plugin.getDataFolder(), "archives");
+        this.driveCache = plugin.getConfig().getBoolean("script-cache", true)
+                ? new DriveCache(plugin, new File(plugin.getDataFolder(), "cache/drives.bin"), simplifier)
+                : null;
+        this.loadedDrives = new LoadedDrives(plugin.getConfig().getInt("loaded-drives", 16));
+
+        // Bounded pool for reading and parsing scripts off the main thread
+        AtomicInteger threadId = new AtomicInteger();
+        this.loaderPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "AquilaCine-ScriptLoader-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mainThread = task -> plugin.getTaskScheduler().runGlobal(task);
 
         // Create scripts directory if it doesn't exist
         if (!scriptsDir.exists()) {
@@ -23,36 +70,489 @@ public class ScriptManager {
 
     /**
      * Load all camera drives from script files
+     * Files are read and parsed in parallel off the main thread. Only binding the
+     * drives to their worlds and swapping the registry happens on the main thread.
+     * @return A future that completes on the main thread once the drives are registered
      */
-    public void loadCameraDrives() {
-        // Clear existing drives
-        plugin.getDriveManager().clearDrives();
-        plugin.getDriveManager().stopAllDrives();
+    public CompletableFuture<LoadResult> loadCameraDrives() {
+        if (pendingLoad != null && !pendingLoad.isDone()) {
+            return pendingLoad;
+        }
+
+        long startTime = System.nanoTime();
+        pendingLoad = CompletableFuture.supplyAsync(() -> {
+                    if (driveCache != null) {
+                        driveCache.open();
+                    }
+                    return listScriptFiles();
+                }, loaderPool)
+                .thenCompose(this::parseAll)
+                .thenApply(this::saveCache)
+                .thenApplyAsync(outcomes -> registerDrives(outcomes, startTime), mainThread);
+        pendingLoad.whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Failed to load camera drives: " + error.getMessage());
+            }
+        });
+        return pendingLoad;
+    }
+
+    /**
+     * Reload only the given script files, leaving all other drives and running sessions untouched
+     * Files that no longer exist have their drives unregistered.
+     * @param scriptFiles The changed script files
+     * @return A future that completes on the main thread once the drives are updated
+     */
+    public CompletableFuture<LoadResult> reloadScripts(Collection<File> scriptFiles) {
+        long startTime = System.nanoTime();
+        File[] files = scriptFiles.toArray(new File[0]);
+        return parseAll(files).thenApplyAsync(outcomes -> updateDrives(outcomes, startTime), mainThread);
+    }
+
+    /**
+     * Pack every script and recorded track into an archive in the archives folder
+     * @param name The name of the archive, without the extension
+     * @return A future for what was packed, completed off the main thread
+     */
+    public CompletableFuture<DriveArchive.Summary> exportDrives(String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            File[] files = scriptsDir.listFiles((dir, fileName) -> isScriptFile(fileName));
+            try {
+                return DriveArchive.export(files != null ? files : new File[0],
+                        new File(archivesDir, name + DriveArchive.EXTENSION).toPath());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, loaderPool);
+    }
+
+    /**
+     * Unpack an archive from the archives folder into the scripts folder
+     * Only the scripts whose contents changed are parsed and registered again, the
+     * rest of the library and all running sessions are left alone.
+     * @param name The name of the archive, without the extension
+     * @return A future for what was unpacked, completed on the main thread once the changed drives are registered
+     */
+    public CompletableFuture<DriveArchive.Summary> importDrives(String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return DriveArchive.extract(new File(archivesDir, name + DriveArchive.EXTENSION).toPath(), scriptsDir.toPath());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, loaderPool).thenCompose(summary -> reloadScripts(summary.getChanged()).thenApply(result -> summary));
+    }
+
+    /**
+     * Get the folder archives are exported to and imported from
+     * @return The archives folder
+     */
+    public File getArchivesDirectory() {
+        return archivesDir;
+    }
+
+    /**
+     * Get a drive with its waypoints, loading it from its script file if it isn't in memory
+     * The script is parsed off the main thread and bound to its world on the main thread.
+     * @param info The index entry of the drive
+     * @return A future for the drive, which is already complete if the drive was loaded recently
+     */
+    public CompletableFuture<CameraDrive> loadDrive(DriveInfo info) {
+        return loadedDrives.get(info, this::readDrive);
+    }
+
+    public LoadedDrives getLoadedDrives() {
+        return loadedDrives;
+    }
+
+    /**
+     * Get the background pool scripts are parsed on
+     * @return The pool, also used for other work on drives that must stay off the main thread
+     */
+    public Executor getExecutor() {
+        return loaderPool;
+    }
+
+    private CompletableFuture<CameraDrive> readDrive(DriveInfo info) {
+        // Another instance of the same template is still loaded, so share its path instead of parsing the script again
+        if (info.getTransform() != null) {
+            WeakReference<DriveScript> reference = templates.get(info.getFileName());
+            DriveScript template = reference != null ? reference.get() : null;
+            if (template != null) {
+                return CompletableFuture.supplyAsync(() -> instantiate(template, info), mainThread);
+            }
+        }
+
+        File scriptFile = new File(scriptsDir, info.getFileName());
+        return CompletableFuture.supplyAsync(() -> parse(scriptFile), loaderPool).thenApplyAsync(outcome -> {
+            if (outcome.script == null) {
+                throw new IllegalStateException(outcome.error != null ? outcome.error : "Script file was deleted");
+            }
+            if (info.getTransform() == null) {
+                return outcome.script.bind(resolveWorld(outcome.script.getWorldName()));
+            }
+            templates.put(info.getFileName(), new WeakReference<>(outcome.script));
+            return instantiate(outcome.script, info);
+        }, mainThread);
+    }
+
+    private CameraDrive instantiate(DriveScript template, DriveInfo info) {
+        return template.instantiate(info.getName(), resolveWorld(info.getWorldName()), info.getTransform());
+    }
 
-        // Create example scripts if directory is empty
-        if (scriptsDir.listFiles() == null || scriptsDir.listFiles().length == 0) {
+    /**
+     * Start watching the scripts folder for changes, if enabled in the config
+     */
+    public void startWatching() {
+        if (watcher != null || !plugin.getConfig().getBoolean("watch-scripts", false)) {
+            return;
+        }
+
+        long debounceMillis = plugin.getConfig().getLong("watch-debounce-ms", 500L);
+        watcher = new ScriptWatcher(plugin, scriptsDir.toPath(), debounceMillis, this::onScriptsChanged);
+        try {
+            watcher.start();
+            plugin.getLogger().info("Watching scripts folder for changes");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to watch scripts folder: " + e.getMessage());
+            watcher = null;
+        }
+    }
+
+    /**
+     * Called from the watcher thread with a debounced batch of changed files
+     * @param changed The changed files, or null if every script should be rescanned
+     */
+    private void onScriptsChanged(Set<Path> changed) {
+        // A batch can still arrive while the plugin shuts down
+        if (loaderPool.isShutdown()) {
+            return;
+        }
+        if (changed == null) {
+            // Events were lost, so compare the folder against the drives we know about
+            plugin.getTaskScheduler().runGlobal(() -> {
+                if (loaderPool.isShutdown()) {
+                    return;
+                }
+                Set<File> files = new HashSet<>();
+                for (String fileName : driveFiles.keySet()) {
+                    files.add(new File(scriptsDir, fileName));
+                }
+                Collections.addAll(files, listScriptFiles());
+                reloadScripts(files);
+            });
+            return;
+        }
+
+        List<File> files = new ArrayList<>(changed.size());
+        for (Path path : changed) {
+            files.add(path.toFile());
+        }
+        try {
+            reloadScripts(files);
+        } catch (RejectedExecutionException e) {
+            // The loader threads were stopped after the check above
+        }
+    }
+
+    /**
+     * Stop the loader threads and the script watcher
+     */
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+        loaderPool.shutdownNow();
+        try {
+            loaderPool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Check if a file in the scripts folder holds a drive
+     * @param fileName The name of the file
+     * @return True for scripts (.cdrive) and recorded tracks (.ctrack)
+     */
+    static boolean isScriptFile(String fileName) {
+        return fileName.endsWith(".cdrive") || fileName.endsWith(TrackFormat.EXTENSION);
+    }
+
+    /**
+     * Get the folder scripts and recorded tracks are loaded from
+     * @return The scripts folder
+     */
+    public File getScriptsDirectory() {
+        return scriptsDir;
+    }
+
+    /**
+     * List all script files, creating the examples if the directory is empty
+     * @return The script files
+     */
+    private File[] listScriptFiles() {
+        File[] files = scriptsDir.listFiles();
+        if (files == null || files.length == 0) {
             createExampleScripts();
+            files = scriptsDir.listFiles();
+        }
+        if (files == null) {
+            return new File[0];
         }
 
-        // Load all script files
-        File[] scriptFiles = scriptsDir.listFiles((dir, name) -> name.endsWith(".cdrive"));
-        if (scriptFiles != null) {
-            for (File scriptFile : scriptFiles) {
-                try {
-                    CameraDrive drive = scriptParser.parseScript(scriptFile);
-                    if (drive != null) {
-                        plugin.getDriveManager().registerDrive(drive);
-                        plugin.getServer().getConsoleSender().sendMessage(
-                                plugin.formatMessage("<aqua>Loaded camera drive: " + drive.getName() + "</aqua>")
-                        );
-                    }
-                } catch (Exception e) {
-                    plugin.getServer().getConsoleSender().sendMessage(
-                            plugin.formatMessage("<red>Error loading script " + scriptFile.getName() + ": " + e.getMessage() + "</red>")
-                    );
+        List<File> scriptFiles = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (isScriptFile(file.getName())) {
+                scriptFiles.add(file);
+            }
+        }
+        return scriptFiles.toArray(new File[0]);
+    }
+
+    /**
+     * Parse all script files in parallel
+     * @param scriptFiles The files to parse
+     * @return A future for the outcome of every file, in the same order
+     */
+    private CompletableFuture<List<ParseOutcome>> parseAll(File[] scriptFiles) {
+        List<CompletableFuture<ParseOutcome>> parses = new ArrayList<>(scriptFiles.length);
+        for (File scriptFile : scriptFiles) {
+            parses.add(CompletableFuture.supplyAsync(() -> parse(scriptFile), loaderPool));
+        }
+
+        return CompletableFuture.allOf(parses.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<ParseOutcome> outcomes = new ArrayList<>(parses.size());
+            for (CompletableFuture<ParseOutcome> parse : parses) {
+                outcomes.add(parse.join());
+            }
+            return outcomes;
+        });
+    }
+
+    private ParseOutcome parse(File scriptFile) {
+        if (!scriptFile.exists()) {
+            plugin.getMetrics().forgetScript(scriptFile.getName());
+            return new ParseOutcome(scriptFile, null, null);
+        }
+
+        try {
+            long start = System.nanoTime();
+            ScriptLoadEvent event = new ScriptLoadEvent();
+            event.begin();
+            DriveScript script;
+            if (scriptFile.getName().endsWith(TrackFormat.EXTENSION)) {
+                // Tracks are already binary, so they skip the cache
+                script = TrackFormat.read(scriptFile, simplifier);
+            } else {
+                script = driveCache != null
+                        ? driveCache.load(scriptFile, scriptParser)
+                        : scriptParser.parseScript(scriptFile);
+            }
+            plugin.getMetrics().recordScriptLoad(event, scriptFile.getName(), script, System.nanoTime() - start);
+            return new ParseOutcome(scriptFile, script, null);
+        } catch (ScriptParseException e) {
+            return new ParseOutcome(scriptFile, null,
+                    "line " + e.getLine() + ", column " + e.getColumn() + ": " + e.getReason());
+        } catch (Exception e) {
+            return new ParseOutcome(scriptFile, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Write every successfully parsed script back to the binary cache
+     * @param outcomes The parse outcomes of a full load
+     * @return The same outcomes
+     */
+    private List<ParseOutcome> saveCache(List<ParseOutcome> outcomes) {
+        if (driveCache != null) {
+            List<DriveScript> scripts = new ArrayList<>(outcomes.size());
+            for (ParseOutcome outcome : outcomes) {
+                if (outcome.script != null && !outcome.file.getName().endsWith(TrackFormat.EXTENSION)) {
+                    scripts.add(outcome.script);
+                }
+            }
+            driveCache.save(scripts);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Swap the index entries of parsed scripts into the drive registry
+     * The waypoints are dropped here and loaded again when a drive is played.
+     * Must be called on the main thread.
+     * @param outcomes The parse outcomes
+     * @param startTime The time the load started, from {@link System#nanoTime()}
+     * @return The result of the load
+     */
+    private LoadResult registerDrives(List<ParseOutcome> outcomes, long startTime) {
+        List<DriveInfo> drives = new ArrayList<>(outcomes.size());
+        Map<String, String> failures = new LinkedHashMap<>();
+
+        driveFiles.clear();
+        for (ParseOutcome outcome : outcomes) {
+            if (outcome.script == null) {
+                if (outcome.error != null) {
+                    failures.put(outcome.file.getName(), outcome.error);
                 }
+                continue;
             }
+            List<String> names = new ArrayList<>();
+            for (DriveInfo drive : outcome.script.toInfos()) {
+                drives.add(drive);
+                names.add(drive.getName());
+            }
+            driveFiles.put(outcome.file.getName(), names);
         }
+
+        // Swap the registry in one go
+        plugin.getDriveManager().stopAllDrives();
+        plugin.getDriveManager().replaceDrives(drives);
+        loadedDrives.clear();
+        templates.clear();
+
+        LoadResult result = new LoadResult(drives.size(), failures,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        plugin.getMetrics().recordLoad(result.getElapsedMillis(), result.getLoaded());
+
+        for (Map.Entry<String, String> failure : failures.entrySet()) {
+            plugin.getServer().getConsoleSender().sendMessage(
+                    plugin.formatMessage("<red>Error loading script " + failure.getKey() + ": " + failure.getValue() + "</red>")
+            );
+        }
+        plugin.getServer().getConsoleSender().sendMessage(
+                plugin.formatMessage("<aqua>Loaded " + result.getLoaded() + " camera drives in " + result.getElapsedMillis()
+                        + " ms (" + failures.size() + " failed)</aqua>")
+        );
+        if (simplifier != null) {
+            reportSimplification(outcomes);
+        }
+        return result;
+    }
+
+    /**
+     * Apply the outcome of an incremental reload to the drive registry
+     * Running sessions keep playing the version of the drive they started with.
+     * Must be called on the main thread.
+     * @param outcomes The parse outcomes of the changed files
+     * @param startTime The time the reload started, from {@link System#nanoTime()}
+     * @return The result of the reload
+     */
+    private LoadResult updateDrives(List<ParseOutcome> outcomes, long startTime) {
+        CameraDriveManager driveManager = plugin.getDriveManager();
+        Map<String, String> failures = new LinkedHashMap<>();
+        int updated = 0;
+
+        for (ParseOutcome outcome : outcomes) {
+            String fileName = outcome.file.getName();
+            if (outcome.error != null) {
+                // Keep the previous version of the drive until the script is fixed
+                failures.put(fileName, outcome.error);
+                plugin.getServer().getConsoleSender().sendMessage(
+                        plugin.formatMessage("<red>Error reloading script " + fileName + ": " + outcome.error + "</red>")
+                );
+                continue;
+            }
+
+            List<String> previousNames = driveFiles.remove(fileName);
+            if (previousNames != null) {
+                for (String previousName : previousNames) {
+                    // Another file may have registered the same name since
+                    driveManager.unregisterDrive(previousName, fileName);
+                }
+            }
+            loadedDrives.invalidate(fileName);
+            templates.remove(fileName);
+
+            if (outcome.script == null) {
+                plugin.getServer().getConsoleSender().sendMessage(
+                        plugin.formatMessage("<yellow>Removed camera drive from deleted script " + fileName + "</yellow>")
+                );
+                continue;
+            }
+
+            List<String> names = new ArrayList<>();
+            for (DriveInfo drive : outcome.script.toInfos()) {
+                driveManager.registerDrive(drive);
+                names.add(drive.getName());
+                updated++;
+                plugin.getServer().getConsoleSender().sendMessage(
+                        plugin.formatMessage("<aqua>Reloaded camera drive: " + drive.getName() + "</aqua>")
+                );
+            }
+            driveFiles.put(fileName, names);
+            if (simplifier != null) {
+                reportSimplification(List.of(outcome));
+            }
+        }
+
+        return new LoadResult(updated, failures, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Create the waypoint simplifier from the config
+     * @return The simplifier, or null if simplification is disabled or misconfigured
+     */
+    private PathSimplifier createSimplifier() {
+        if (!plugin.getConfig().getBoolean("simplify.enabled", false)) {
+            return null;
+        }
+        try {
+            return new PathSimplifier(plugin.getConfig().getDouble("simplify.position-tolerance", 0.05),
+                    plugin.getConfig().getDouble("simplify.angle-tolerance", 1.0));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid simplify settings, keeping every waypoint: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Log how many waypoints the simplifier dropped from the loaded scripts
+     * @param outcomes The parse outcomes
+     */
+    private void reportSimplification(List<ParseOutcome> outcomes) {
+        int drives = 0;
+        long before = 0;
+        long after = 0;
+        for (ParseOutcome outcome : outcomes) {
+            if (outcome.script == null) {
+                continue;
+            }
+            int original = outcome.script.getOriginalWaypointCount();
+            int kept = outcome.script.getWaypointCount();
+            if (kept < original) {
+                drives++;
+                before += original;
+                after += kept;
+            }
+        }
+        if (drives == 0) {
+            return;
+        }
+        plugin.getServer().getConsoleSender().sendMessage(
+                plugin.formatMessage("<aqua>Simplified " + drives + " camera drives: " + before + " -> " + after
+                        + " waypoints (-" + String.format("%.1f", 100.0 * (before - after) / before) + "%)</aqua>")
+        );
+    }
+
+    /**
+     * Resolve the world a drive takes place in
+     * @param worldName The world named by the script or instance, or null
+     * @return The named world, or the default world if it is missing
+     */
+    private World resolveWorld(String worldName) {
+        World defaultWorld = plugin.getServer().getWorlds().get(0);
+        if (worldName == null) {
+            return defaultWorld;
+        }
+
+        World world = plugin.getServer().getWorld(worldName);
+        if (world == null) {
+            plugin.getLogger().warning("World '" + worldName + "' not found, using default world");
+            return defaultWorld;
+        }
+        return world;
     }
 
     /**
@@ -77,6 +577,8 @@ public class ScriptManager {
                     writer.write("name: UltimateShowcase\n\n");
                     writer.write("# Specify the world (optional, defaults to the first world if not specified)\n");
                     writer.write("world: world\n\n");
+                    writer.write("# Curve between waypoints: linear, catmull-rom or bezier (optional, defaults to linear)\n");
+                    writer.write("interpolation: catmull-rom\n\n");
                     writer.write("# Starting point - ground level, looking straight ahead\n");
                     writer.write("waypoint: 0,64,0,0,0\n\n");
                     writer.write("# Slow ascent with a slight turn\n");
@@ -179,5 +681,47 @@ public class ScriptManager {
             plugin.getLogger().severe("Failed to create demo script: " + e.getMessage());
         }
     }
-}
 
+    private static final class ParseOutcome {
+        private final File file;
+        private final DriveScript script;
+        private final String error;
+
+        private ParseOutcome(File file, DriveScript script, String error) {
+            this.file = file;
+            this.script = script;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Summary of a completed script load
+     */
+    public static class LoadResult {
+        private final int loaded;
+        private final Map<String, String> failures;
+        private final long elapsedMillis;
+
+        public LoadResult(int loaded, Map<String, String> failures, long elapsedMillis) {
+            this.loaded = loaded;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getLoaded() {
+            return loaded;
+        }
+
+        /**
+         * Get the scripts that failed to load
+         * @return The error message of each failed script, by file name
+         */
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
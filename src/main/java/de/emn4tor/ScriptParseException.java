@@ -0,0 +1,48 @@
+package de.emn4tor;
+
+/**
+ * Thrown when a camera drive script contains an error
+ * Carries the file, line and column the error was found at.
+ */
+public class ScriptParseException extends Exception {
+    private final String fileName;
+    private final int line;
+    private final int column;
+    private final String reason;
+
+    public ScriptParseException(String fileName, int line, int column, String reason) {
+        super(fileName + ":" + line + ":" + column + ": " + reason);
+        this.fileName = fileName;
+        this.line = line;
+        this.column = column;
+        this.reason = reason;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the line the error was found at
+     * @return The line number, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Get the column the error was found at
+     * @return The column number, starting at 1
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the error message without the position prefix
+     * @return The reason the script was rejected
+     */
+    public String getReason() {
+        return reason;
+    }
+}
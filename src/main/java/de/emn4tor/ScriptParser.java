@@ -5,113 +5,589 @@ package de.emn4tor;
  *  @created: 10.03.2025
  */
 
-import org.bukkit.Location;
-import org.bukkit.World;
+import de.emn4tor.path.Easing;
+import de.emn4tor.path.InterpolationMode;
+import de.emn4tor.path.PathSimplifier;
+import de.emn4tor.path.PathTransform;
+import de.emn4tor.path.SpeedProfile;
 import java.io.File;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ScriptParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     private final AquilaCine plugin;
+    private final PathSimplifier simplifier; // null to keep every waypoint
 
     public ScriptParser(AquilaCine plugin) {
+        this(plugin, null);
+    }
+
+    /**
+     * @param plugin The plugin
+     * @param simplifier The simplifier applied to parsed waypoints, or null to keep every waypoint
+     */
+    public ScriptParser(AquilaCine plugin, PathSimplifier simplifier) {
         this.plugin = plugin;
+        this.simplifier = simplifier;
+    }
+
+    public PathSimplifier getSimplifier() {
+        return simplifier;
     }
 
     /**
      * Parse a camera drive script file
+     * Does not touch any server state, so it is safe to call off the main thread.
      * @param scriptFile The script file to parse
-     * @return The parsed CameraDrive, or null if parsing failed
+     * @return The parsed script
      */
-    public CameraDrive parseScript(File scriptFile) throws Exception {
-        String name = scriptFile.getName().replace(".cdrive", "");
-        List<Location> waypoints = new ArrayList<>();
+    public DriveScript parseScript(File scriptFile) throws Exception {
+        return parseScript(scriptFile.getName(), Files.readAllBytes(scriptFile.toPath()));
+    }
+
+    /**
+     * Parse the contents of a camera drive script
+     * The bytes are scanned in a single pass without splitting lines into strings.
+     * @param fileName The name of the script file
+     * @param content The raw script contents
+     * @return The parsed script
+     * @throws ScriptParseException with the line and column of the first error
+     */
+    public DriveScript parseScript(String fileName, byte[] content) throws ScriptParseException {
+        Cursor in = new Cursor(fileName, content);
+        String name = fileName.replace(".cdrive", "");
+        String worldName = null; // Default world
         double speed = 5.0; // Default speed
-        World world = plugin.getServer().getWorlds().get(0); // Default world
+        InterpolationMode interpolation = InterpolationMode.LINEAR;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(scriptFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Skip comments and empty lines
-                if (line.trim().isEmpty() || line.trim().startsWith("#")) {
-                    continue;
-                }
+        int count = 0;
+        double[] x = new double[16];
+        double[] y = new double[16];
+        double[] z = new double[16];
+        float[] yaw = new float[16];
+        float[] pitch = new float[16];
+
+        // Speed keyframes, resolved to their nearest waypoint once all waypoints are known
+        int keyframes = 0;
+        double[] keyframeX = new double[4];
+        double[] keyframeY = new double[4];
+        double[] keyframeZ = new double[4];
+        double[] keyframeSpeed = new double[4];
+        Easing[] keyframeEasing = new Easing[4];
+
+        // Placements of the path, which make the waypoints relative to each anchor
+        List<DriveInstance> instances = new ArrayList<>();
+
+        // Timed actions, with the line of each one for errors found once all waypoints are known
+        List<Timeline.Cue> cues = new ArrayList<>();
+        int[] cueLines = new int[4];
+
+        while (in.nextLine()) {
+            // Skip comments and empty lines
+            if (in.atLineEnd() || in.peek() == '#') {
+                continue;
+            }
 
-                String[] parts = line.split(":", 2);
-                if (parts.length != 2) {
-                    continue;
+            int keyStart = in.pos;
+            int colon = in.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            int keyEnd = in.trimEnd(keyStart, colon);
+            in.pos = colon + 1;
+            in.skipSpaces();
+
+            if (in.data[keyStart] == '@') {
+                if (keyframes == keyframeX.length) {
+                    int capacity = keyframes * 2;
+                    keyframeX = Arrays.copyOf(keyframeX, capacity);
+                    keyframeY = Arrays.copyOf(keyframeY, capacity);
+                    keyframeZ = Arrays.copyOf(keyframeZ, capacity);
+                    keyframeSpeed = Arrays.copyOf(keyframeSpeed, capacity);
+                    keyframeEasing = Arrays.copyOf(keyframeEasing, capacity);
+                }
+                parseKeyframe(in, keyStart, colon, keyframes, keyframeX, keyframeY, keyframeZ, keyframeSpeed, keyframeEasing);
+                keyframes++;
+            } else if (in.keyEquals(keyStart, keyEnd, "waypoint")) {
+                if (count == x.length) {
+                    int capacity = count * 2;
+                    x = Arrays.copyOf(x, capacity);
+                    y = Arrays.copyOf(y, capacity);
+                    z = Arrays.copyOf(z, capacity);
+                    yaw = Arrays.copyOf(yaw, capacity);
+                    pitch = Arrays.copyOf(pitch, capacity);
+                }
+                parseWaypoint(in, count, x, y, z, yaw, pitch);
+                count++;
+            } else if (in.keyEquals(keyStart, keyEnd, "instance")) {
+                int valueStart = in.pos;
+                DriveInstance instance = parseInstance(in);
+                for (DriveInstance other : instances) {
+                    if (other.getName().equalsIgnoreCase(instance.getName())) {
+                        throw in.errorAt(valueStart, "Duplicate instance '" + instance.getName() + "'");
+                    }
+                }
+                instances.add(instance);
+            } else if (in.keyEquals(keyStart, keyEnd, "cue")) {
+                if (cues.size() == cueLines.length) {
+                    cueLines = Arrays.copyOf(cueLines, cues.size() * 2);
                 }
+                cueLines[cues.size()] = in.line;
+                cues.add(parseCue(in));
+            } else if (in.keyEquals(keyStart, keyEnd, "name")) {
+                name = in.restOfLine();
+            } else if (in.keyEquals(keyStart, keyEnd, "world")) {
+                worldName = in.restOfLine();
+            } else if (in.keyEquals(keyStart, keyEnd, "interpolation")) {
+                int valueStart = in.pos;
+                String value = in.restOfLine();
+                interpolation = InterpolationMode.fromKey(value);
+                if (interpolation == null) {
+                    throw in.errorAt(valueStart, "Unknown interpolation '" + value + "', expected linear, catmull-rom or bezier");
+                }
+            } else if (in.keyEquals(keyStart, keyEnd, "speed")) {
+                try {
+                    int valueStart = in.pos;
+                    double value = in.readNumber();
+                    in.expectLineEnd();
+                    if (!(value > 0)) {
+                        throw in.errorAt(valueStart, "Speed must be positive");
+                    }
+                    speed = value;
+                } catch (ScriptParseException e) {
+                    plugin.getLogger().warning(e.getMessage() + ", using default speed");
+                }
+            }
+        }
 
-                String key = parts[0].trim().toLowerCase();
-                String value = parts[1].trim();
+        if (count == 0) {
+            throw new ScriptParseException(fileName, in.line, 1, "No waypoints defined in script");
+        }
+
+        for (int i = 0; i < cues.size(); i++) {
+            if (cues.get(i).getWaypoint() >= count) {
+                throw new ScriptParseException(fileName, cueLines[i], 1,
+                        "Cue at waypoint " + (cues.get(i).getWaypoint() + 1) + ", but the script has " + count + " waypoints");
+            }
+        }
 
-                switch (key) {
-                    case "name":
-                        name = value;
-                        break;
-                    case "world":
-                        World foundWorld = plugin.getServer().getWorld(value);
-                        if (foundWorld != null) {
-                            world = foundWorld;
-                        } else {
-                            plugin.getLogger().warning("World '" + value + "' not found, using default world");
-                        }
-                        break;
-                    case "waypoint":
-                        waypoints.add(parseWaypoint(value, world));
-                        break;
-                    case "speed":
-                        try {
-                            speed = Double.parseDouble(value);
-                        } catch (NumberFormatException e) {
-                            plugin.getLogger().warning("Invalid speed value: " + value + ", using default");
-                        }
-                        break;
+        // Anchor each speed keyframe to the waypoint closest to its position
+        int[] keyframeWaypoint = new int[keyframes];
+        for (int k = 0; k < keyframes; k++) {
+            double closest = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                double dx = x[i] - keyframeX[k];
+                double dy = y[i] - keyframeY[k];
+                double dz = z[i] - keyframeZ[k];
+                double distance = dx * dx + dy * dy + dz * dz;
+                if (distance < closest) {
+                    closest = distance;
+                    keyframeWaypoint[k] = i;
                 }
             }
         }
 
-        if (waypoints.isEmpty()) {
-            throw new Exception("No waypoints defined in script");
+        x = Arrays.copyOf(x, count);
+        y = Arrays.copyOf(y, count);
+        z = Arrays.copyOf(z, count);
+        yaw = Arrays.copyOf(yaw, count);
+        pitch = Arrays.copyOf(pitch, count);
+
+        // Bezier waypoints are control points, not points on the path, so they are never dropped
+        if (simplifier != null && interpolation != InterpolationMode.BEZIER && count > 2) {
+            boolean[] pinned = new boolean[count];
+            for (int waypoint : keyframeWaypoint) {
+                pinned[waypoint] = true;
+            }
+            for (Timeline.Cue cue : cues) {
+                if (cue.getWaypoint() >= 0) {
+                    pinned[cue.getWaypoint()] = true;
+                }
+            }
+            int[] kept = simplifier.simplify(x, y, z, yaw, pitch, pinned);
+            if (kept.length < count) {
+                x = PathSimplifier.select(x, kept);
+                y = PathSimplifier.select(y, kept);
+                z = PathSimplifier.select(z, kept);
+                yaw = PathSimplifier.select(yaw, kept);
+                pitch = PathSimplifier.select(pitch, kept);
+                // Keyframe anchors are pinned, so each one is still there under a new index
+                for (int k = 0; k < keyframes; k++) {
+                    keyframeWaypoint[k] = Arrays.binarySearch(kept, keyframeWaypoint[k]);
+                }
+                for (int i = 0; i < cues.size(); i++) {
+                    Timeline.Cue cue = cues.get(i);
+                    if (cue.getWaypoint() >= 0) {
+                        cues.set(i, cue.atWaypoint(Arrays.binarySearch(kept, cue.getWaypoint())));
+                    }
+                }
+            }
         }
 
-        return new CameraDrive(name, waypoints, speed);
+        SpeedProfile speedProfile = new SpeedProfile(speed, keyframeWaypoint,
+                Arrays.copyOf(keyframeSpeed, keyframes), Arrays.copyOf(keyframeEasing, keyframes));
+
+        return new DriveScript(fileName, name, worldName, x, y, z, yaw, pitch, speedProfile, interpolation, count,
+                List.copyOf(instances), List.copyOf(cues));
     }
 
     /**
-     * Parse a waypoint string in the format "x,y,z,yaw,pitch"
-     * @param waypointStr The waypoint string
-     * @param world The world for this waypoint
-     * @return The parsed Location
+     * Parse a cue in the format "seconds action argument" or "waypoint n action argument"
+     * Waypoints are counted from 1 in scripts and from 0 in the returned cue.
      */
-    private Location parseWaypoint(String waypointStr, World world) throws Exception {
-        String[] coords = waypointStr.split(",");
-        if (coords.length < 3) {
-            throw new Exception("Waypoint must have at least x,y,z coordinates");
+    private static Timeline.Cue parseCue(Cursor in) throws ScriptParseException {
+        int waypoint = -1;
+        double seconds = 0;
+        int wordEnd = in.wordEnd();
+        if (in.keyEquals(in.pos, wordEnd, "waypoint")) {
+            in.pos = wordEnd;
+            in.skipSpaces();
+            int numberStart = in.pos;
+            double number = in.readNumber();
+            if (number < 1 || number != Math.floor(number)) {
+                throw in.errorAt(numberStart, "Waypoint must be a whole number of at least 1");
+            }
+            waypoint = (int) number - 1;
+        } else {
+            int timeStart = in.pos;
+            seconds = in.readNumber();
+            if (seconds < 0) {
+                throw in.errorAt(timeStart, "Cue time must not be negative");
+            }
+        }
+
+        in.skipSpaces();
+        int actionStart = in.pos;
+        int actionEnd = in.wordEnd();
+        String actionName = new String(in.data, actionStart, actionEnd - actionStart, StandardCharsets.UTF_8);
+        Timeline.Cue.Action action = Timeline.Cue.Action.fromKey(actionName);
+        if (action == null) {
+            throw in.errorAt(actionStart, "Unknown cue '" + actionName + "', expected title, actionbar, sound, command, time or fade");
         }
+        in.pos = actionEnd;
+        in.skipSpaces();
 
+        int argumentStart = in.pos;
+        String argument = in.restOfLine();
         try {
-            double x = Double.parseDouble(coords[0]);
-            double y = Double.parseDouble(coords[1]);
-            double z = Double.parseDouble(coords[2]);
+            return new Timeline.Cue(action, argument, waypoint, seconds);
+        } catch (RuntimeException e) {
+            throw in.errorAt(argumentStart, "Invalid " + action.getKey() + " cue: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse an instance in the format "name x,y,z[,rotation] [world]"
+     */
+    private static DriveInstance parseInstance(Cursor in) throws ScriptParseException {
+        int nameEnd = in.wordEnd();
+        if (nameEnd == in.pos) {
+            throw in.error("Expected an instance name");
+        }
+        String name = new String(in.data, in.pos, nameEnd - in.pos, StandardCharsets.UTF_8);
+        in.pos = nameEnd;
+
+        double x = in.readNumber();
+        in.skipSpaces();
+        in.expect(',');
+        double y = in.readNumber();
+        in.skipSpaces();
+        in.expect(',');
+        double z = in.readNumber();
+        in.skipSpaces();
+        float rotation = 0;
+        if (!in.atLineEnd() && in.peek() == ',') {
+            in.pos++;
+            rotation = (float) in.readNumber();
+            in.skipSpaces();
+        }
+
+        String worldName = in.atLineEnd() ? null : in.restOfLine();
+        return new DriveInstance(name, worldName, new PathTransform(x, y, z, rotation));
+    }
+
+    /**
+     * Parse a speed keyframe in the format "@x,y,z: speed n [easing]" into the given slot
+     */
+    private static void parseKeyframe(Cursor in, int keyStart, int colon, int index, double[] x, double[] y, double[] z,
+                                      double[] speed, Easing[] easing) throws ScriptParseException {
+        int valueStart = in.pos;
+        in.pos = keyStart + 1;
+        x[index] = in.readNumber();
+        in.skipSpaces();
+        in.expect(',');
+        y[index] = in.readNumber();
+        in.skipSpaces();
+        in.expect(',');
+        z[index] = in.readNumber();
+        in.skipSpaces();
+        if (in.pos != colon) {
+            throw in.error("Expected ':' after keyframe position");
+        }
+
+        in.pos = valueStart;
+        int wordEnd = in.wordEnd();
+        if (!in.keyEquals(in.pos, wordEnd, "speed")) {
+            throw in.error("Expected 'speed' in keyframe");
+        }
+        in.pos = wordEnd;
+
+        int speedStart = in.pos;
+        speed[index] = in.readNumber();
+        if (!(speed[index] > 0)) {
+            throw in.errorAt(speedStart, "Speed must be positive");
+        }
+
+        in.skipSpaces();
+        easing[index] = Easing.STEP;
+        if (!in.atLineEnd()) {
+            int easingStart = in.pos;
+            String name = in.restOfLine();
+            easing[index] = Easing.fromKey(name);
+            if (easing[index] == null) {
+                throw in.errorAt(easingStart, "Unknown easing '" + name + "', expected step, linear, ease-in, ease-out or ease-in-out");
+            }
+        }
+    }
+
+    /**
+     * Parse a waypoint in the format "x,y,z[,yaw[,pitch]]" into the given slot
+     */
+    private static void parseWaypoint(Cursor in, int index, double[] x, double[] y, double[] z,
+                                      float[] yaw, float[] pitch) throws ScriptParseException {
+        int start = in.pos;
+        double[] values = in.values;
+        Arrays.fill(values, 0);
+        int parsed = 0;
 
-            float yaw = 0f;
-            float pitch = 0f;
+        while (true) {
+            if (parsed == values.length) {
+                throw in.error("Waypoint has more than x,y,z,yaw,pitch values");
+            }
+            values[parsed++] = in.readNumber();
+            in.skipSpaces();
+            if (in.atLineEnd()) {
+                break;
+            }
+            in.expect(',');
+        }
+
+        if (parsed < 3) {
+            throw in.errorAt(start, "Waypoint must have at least x,y,z coordinates");
+        }
+
+        x[index] = values[0];
+        y[index] = values[1];
+        z[index] = values[2];
+        yaw[index] = (float) values[3];
+        pitch[index] = (float) values[4];
+    }
+
+    /**
+     * Position within a script, tracking the current line for diagnostics
+     */
+    private static final class Cursor {
+        private final String fileName;
+        private final byte[] data;
+        private final double[] values = new double[5]; // scratch space for one waypoint
+        private int pos;
+        private int next; // start of the next line
+        private int lineStart;
+        private int lineEnd; // end of the current line, excluding the line break
+        private int line;
+
+        private Cursor(String fileName, byte[] data) {
+            this.fileName = fileName;
+            this.data = data;
+
+            // Skip a UTF-8 byte order mark
+            if (data.length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF) {
+                next = 3;
+            }
+        }
+
+        /**
+         * Advance to the first non-blank character of the next line
+         * @return False at the end of the script
+         */
+        private boolean nextLine() {
+            if (next >= data.length) {
+                return false;
+            }
+
+            line++;
+            lineStart = next;
+            int end = next;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            next = end + 1;
+            if (end > lineStart && data[end - 1] == '\r') {
+                end--;
+            }
+            lineEnd = end;
+            pos = lineStart;
+            skipSpaces();
+            return true;
+        }
+
+        private boolean atLineEnd() {
+            return pos >= lineEnd;
+        }
 
-            if (coords.length >= 4) {
-                yaw = Float.parseFloat(coords[3]);
+        private byte peek() {
+            return data[pos];
+        }
+
+        private void skipSpaces() {
+            while (pos < lineEnd && (data[pos] == ' ' || data[pos] == '\t')) {
+                pos++;
             }
+        }
 
-            if (coords.length >= 5) {
-                pitch = Float.parseFloat(coords[4]);
+        /**
+         * Find the end of the word at the current position
+         */
+        private int wordEnd() {
+            int end = pos;
+            while (end < lineEnd && data[end] != ' ' && data[end] != '\t') {
+                end++;
             }
+            return end;
+        }
 
-            return new Location(world, x, y, z, yaw, pitch);
-        } catch (NumberFormatException e) {
-            throw new Exception("Invalid coordinate format: " + waypointStr);
+        private int indexOf(char c) {
+            for (int i = pos; i < lineEnd; i++) {
+                if (data[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int trimEnd(int start, int end) {
+            while (end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) {
+                end--;
+            }
+            return end;
+        }
+
+        /**
+         * Compare a key case-insensitively without creating a string
+         */
+        private boolean keyEquals(int start, int end, String key) {
+            if (end - start != key.length()) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                int c = data[start + i];
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                if (c != key.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String restOfLine() {
+            int end = trimEnd(pos, lineEnd);
+            String value = new String(data, pos, end - pos, StandardCharsets.UTF_8);
+            pos = lineEnd;
+            return value;
+        }
+
+        private void expect(char c) throws ScriptParseException {
+            if (atLineEnd() || data[pos] != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private void expectLineEnd() throws ScriptParseException {
+            skipSpaces();
+            if (!atLineEnd()) {
+                throw error("Unexpected '" + (char) data[pos] + "'");
+            }
+        }
+
+        /**
+         * Read a decimal number without creating an intermediate string
+         * Plain numbers with up to 15 significant digits are computed exactly;
+         * anything longer falls back to {@link Double#parseDouble(String)}.
+         */
+        private double readNumber() throws ScriptParseException {
+            skipSpaces();
+            int start = pos;
+            boolean negative = false;
+            if (pos < lineEnd && (data[pos] == '-' || data[pos] == '+')) {
+                negative = data[pos] == '-';
+                pos++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            while (pos < lineEnd && data[pos] >= '0' && data[pos] <= '9') {
+                mantissa = mantissa * 10 + (data[pos++] - '0');
+                digits++;
+            }
+            if (pos < lineEnd && data[pos] == '.') {
+                pos++;
+                while (pos < lineEnd && data[pos] >= '0' && data[pos] <= '9') {
+                    mantissa = mantissa * 10 + (data[pos++] - '0');
+                    digits++;
+                    scale++;
+                }
+            }
+            if (digits == 0) {
+                pos = start;
+                throw error("Expected a number");
+            }
+
+            boolean exponent = pos < lineEnd && (data[pos] == 'e' || data[pos] == 'E');
+            if (exponent) {
+                pos++;
+                if (pos < lineEnd && (data[pos] == '-' || data[pos] == '+')) {
+                    pos++;
+                }
+                int exponentStart = pos;
+                while (pos < lineEnd && data[pos] >= '0' && data[pos] <= '9') {
+                    pos++;
+                }
+                if (pos == exponentStart) {
+                    throw error("Invalid number exponent");
+                }
+            }
+
+            if (pos < lineEnd && data[pos] != ',' && data[pos] != ':' && data[pos] != ' ' && data[pos] != '\t') {
+                throw error("Invalid number");
+            }
+
+            if (exponent || digits > 15) {
+                return Double.parseDouble(new String(data, start, pos - start, StandardCharsets.US_ASCII));
+            }
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private ScriptParseException error(String reason) {
+            return errorAt(pos, reason);
+        }
+
+        private ScriptParseException errorAt(int position, String reason) {
+            // Positions are in bytes, columns in characters, so decode what comes before the error
+            String prefix = new String(data, lineStart, position - lineStart, StandardCharsets.UTF_8);
+            return new ScriptParseException(fileName, line, prefix.codePointCount(0, prefix.length()) + 1, reason);
         }
     }
 }
-
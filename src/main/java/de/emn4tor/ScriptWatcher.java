@@ -0,0 +1,111 @@
+package de.emn4tor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the scripts folder and reports changed script files in debounced batches
+ */
+public class ScriptWatcher implements Runnable {
+    private final AquilaCine plugin;
+    private final Path directory;
+    private final long debounceMillis;
+    private final Consumer<Set<Path>> onChange;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param plugin Reference to the main plugin
+     * @param directory The directory to watch
+     * @param debounceMillis How long the folder has to be quiet before a batch is reported
+     * @param onChange Receives each batch of changed files, or null if events were lost and everything should be rescanned
+     */
+    public ScriptWatcher(AquilaCine plugin, Path directory, long debounceMillis, Consumer<Set<Path>> onChange) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Start watching the directory on a background thread
+     */
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        running = true;
+        thread = new Thread(this, "AquilaCine-ScriptWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching
+     */
+    public void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Error closing script watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        Set<Path> pending = new HashSet<>();
+        boolean overflow = false;
+
+        while (running) {
+            WatchKey key;
+            try {
+                // Block until something happens, then keep collecting until the folder is quiet
+                key = pending.isEmpty() && !overflow
+                        ? watchService.take()
+                        : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key == null) {
+                if (!running) {
+                    return;
+                }
+                onChange.accept(overflow ? null : pending);
+                pending = new HashSet<>();
+                overflow = false;
+                continue;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+
+                Path changed = directory.resolve((Path) event.context());
+                if (ScriptManager.isScriptFile(changed.getFileName().toString())) {
+                    pending.add(changed);
+                }
+            }
+            key.reset();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.sound.Sound;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.title.Title;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The cues of a drive, sorted by the frame they fire on
+ * Compiled once when the script is parsed. Every session keeps a cursor to the next
+ * cue, so a tick without a due cue costs one comparison however many cues there are.
+ */
+public final class Timeline {
+    public static final Timeline EMPTY = new Timeline(new int[0], new Cue[0]);
+
+    private final int[] frames; // ascending
+    private final Cue[] cues;
+    private final boolean changesTime;
+    private final boolean fades;
+
+    private Timeline(int[] frames, Cue[] cues) {
+        this.frames = frames;
+        this.cues = cues;
+        boolean changesTime = false;
+        boolean fades = false;
+        for (Cue cue : cues) {
+            changesTime |= cue.action == Cue.Action.TIME;
+            fades |= cue.action == Cue.Action.FADE;
+        }
+        this.changesTime = changesTime;
+        this.fades = fades;
+    }
+
+    /**
+     * Resolve the cues of a script to frames of its path
+     * Cues on the same frame keep their script order.
+     * @param cues The cues in script order
+     * @param path The baked path of the drive
+     * @return The timeline
+     */
+    public static Timeline compile(List<Cue> cues, BakedPath path) {
+        if (cues.isEmpty()) {
+            return EMPTY;
+        }
+
+        int last = path.getFrameCount() - 1;
+        Cue[] sorted = cues.toArray(new Cue[0]);
+        int[] resolved = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Cue cue = sorted[i];
+            resolved[i] = cue.waypoint >= 0
+                    ? path.getWaypointFrame(Math.min(cue.waypoint, path.getWaypointCount() - 1))
+                    : (int) Math.min(Math.round(cue.seconds * BakedPath.TICKS_PER_SECOND), last);
+        }
+
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> resolved[i]));
+
+        int[] frames = new int[order.length];
+        Cue[] ordered = new Cue[order.length];
+        for (int i = 0; i < order.length; i++) {
+            frames[i] = resolved[order[i]];
+            ordered[i] = sorted[order[i]];
+        }
+        return new Timeline(frames, ordered);
+    }
+
+    public int size() {
+        return cues.length;
+    }
+
+    public int getFrame(int index) {
+        return frames[index];
+    }
+
+    public Cue getCue(int index) {
+        return cues[index];
+    }
+
+    /**
+     * Get the cues in the order they fire
+     * @return A copy of the cues
+     */
+    public List<Cue> getCues() {
+        return List.of(cues);
+    }
+
+    /**
+     * Find the cursor for a session that starts showing at a frame
+     * @param frame The first frame shown
+     * @return The index of the first cue on or after the frame
+     */
+    public int seek(int frame) {
+        int low = 0;
+        int high = frames.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (frames[middle] < frame) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Fire every cue that is due for one player
+     * Frames skipped by a fast rate still fire their cues, in order.
+     * @param cursor The index of the next cue
+     * @param frame The frame just shown
+     * @param player The player to show the cues to
+     * @param plugin The plugin
+     * @return The new cursor
+     */
+    public int dispatch(int cursor, int frame, Player player, AquilaCine plugin) {
+        while (cursor < frames.length && frames[cursor] <= frame) {
+            cues[cursor++].run(player, plugin);
+        }
+        return cursor;
+    }
+
+    /**
+     * Fire every cue that is due for all viewers of a broadcast
+     * @param cursor The index of the next cue
+     * @param frame The frame just shown
+     * @param players The viewers
+     * @param count The number of viewers in the array
+     * @param plugin The plugin
+     * @return The new cursor
+     */
+    public int dispatch(int cursor, int frame, Player[] players, int count, AquilaCine plugin) {
+        while (cursor < frames.length && frames[cursor] <= frame) {
+            Cue cue = cues[cursor++];
+            for (int i = 0; i < count; i++) {
+                cue.run(players[i], plugin);
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Check if a player has to be restored when they leave the drive
+     * @return True if the timeline changes the player's time or fades their view
+     */
+    public boolean needsRestore() {
+        return changesTime || fades;
+    }
+
+    /**
+     * Undo what the cues changed about a player, must be called on the player's thread
+     * Blindness is only removed if it is the one a fade applied, so blindness the player
+     * had from somewhere else stays.
+     * @param player The player leaving the drive
+     */
+    public void restore(Player player) {
+        if (changesTime) {
+            player.resetPlayerTime();
+        }
+        if (fades) {
+            PotionEffect blindness = player.getPotionEffect(PotionEffectType.BLINDNESS);
+            if (blindness != null && Cue.isFade(blindness)) {
+                player.removePotionEffect(PotionEffectType.BLINDNESS);
+            }
+        }
+    }
+
+    /**
+     * A timed action placed in a script with a "cue:" line
+     * The argument is parsed when the cue is created, so firing it does no text processing
+     * apart from filling in the player name of a command.
+     */
+    public static final class Cue {
+        private static final Title.Times TITLE_TIMES = Title.Times.times(
+                Duration.ofMillis(500), Duration.ofMillis(3500), Duration.ofMillis(1000));
+
+        public enum Action {
+            TITLE("title"),
+            ACTIONBAR("actionbar"),
+            SOUND("sound"),
+            COMMAND("command"),
+            TIME("time"),
+            FADE("fade");
+
+            private final String key;
+
+            Action(String key) {
+                this.key = key;
+            }
+
+            /**
+             * Get the name used in scripts
+             * @return The script key
+             */
+            public String getKey() {
+                return key;
+            }
+
+            /**
+             * Look up an action by its script name
+             * @param name The name, case-insensitive
+             * @return The action, or null if there is none with that name
+             */
+            public static Action fromKey(String name) {
+                for (Action action : values()) {
+                    if (action.key.equalsIgnoreCase(name)) {
+                        return action;
+                    }
+                }
+                return null;
+            }
+        }
+
+        private final Action action;
+        private final String argument;
+        private final int waypoint; // -1 for a cue placed at a time
+        private final double seconds;
+        private final Title title;
+        private final Component text;
+        private final Sound sound;
+        private final long time;
+        private final int ticks; // how long a fade lasts
+
+        /**
+         * @param action What the cue does
+         * @param argument The rest of the cue line
+         * @param waypoint The waypoint the cue fires at, or -1 to fire at a time
+         * @param seconds The time the cue fires at, ignored if a waypoint is given
+         * @throws IllegalArgumentException if the argument doesn't fit the action
+         */
+        public Cue(Action action, String argument, int waypoint, double seconds) {
+            this.action = action;
+            this.argument = argument;
+            this.waypoint = waypoint;
+            this.seconds = seconds;
+
+            Title title = null;
+            Component text = null;
+            Sound sound = null;
+            long time = 0;
+            int ticks = 0;
+            String[] words = argument.split("\\s+");
+            switch (action) {
+                case TITLE:
+                    int separator = argument.indexOf('|');
+                    Component subtitle = separator >= 0
+                            ? MiniMessage.miniMessage().deserialize(argument.substring(separator + 1).trim())
+                            : Component.empty();
+                    String heading = separator >= 0 ? argument.substring(0, separator).trim() : argument;
+                    title = Title.title(MiniMessage.miniMessage().deserialize(heading), subtitle, TITLE_TIMES);
+                    break;
+                case ACTIONBAR:
+                    text = MiniMessage.miniMessage().deserialize(argument);
+                    break;
+                case SOUND:
+                    if (argument.isEmpty() || words.length > 3) {
+                        throw new IllegalArgumentException("Expected 'sound <key> [volume] [pitch]'");
+                    }
+                    float volume = words.length > 1 ? Float.parseFloat(words[1]) : 1.0f;
+                    float pitch = words.length > 2 ? Float.parseFloat(words[2]) : 1.0f;
+                    sound = Sound.sound(Key.key(words[0]), Sound.Source.MASTER, volume, pitch);
+                    break;
+                case COMMAND:
+                    if (argument.isEmpty()) {
+                        throw new IllegalArgumentException("Expected a command");
+                    }
+                    break;
+                case TIME:
+                    time = Long.parseLong(words[0]);
+                    if (words.length > 1 || time < 0) {
+                        throw new IllegalArgumentException("Expected 'time <ticks>' with ticks of at least 0");
+                    }
+                    break;
+                case FADE:
+                    double duration = Double.parseDouble(words[0]);
+                    if (words.length > 1 || !(duration > 0)) {
+                        throw new IllegalArgumentException("Expected 'fade <seconds>' with a positive duration");
+                    }
+                    ticks = (int) Math.ceil(duration * BakedPath.TICKS_PER_SECOND);
+                    break;
+            }
+            this.title = title;
+            this.text = text;
+            this.sound = sound;
+            this.time = time;
+            this.ticks = ticks;
+        }
+
+        /**
+         * Move the cue to another waypoint, such as after waypoints were simplified away
+         * @param waypoint The new waypoint index
+         * @return A copy of the cue at that waypoint
+         */
+        public Cue atWaypoint(int waypoint) {
+            return new Cue(action, argument, waypoint, seconds);
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public String getArgument() {
+            return argument;
+        }
+
+        /**
+         * Get the waypoint the cue fires at
+         * @return The waypoint index, or -1 if the cue fires at a time
+         */
+        public int getWaypoint() {
+            return waypoint;
+        }
+
+        /**
+         * Get the time the cue fires at
+         * @return The time since the start of the drive in seconds, unused if the cue is placed at a waypoint
+         */
+        public double getSeconds() {
+            return seconds;
+        }
+
+        /**
+         * Check if an effect is the blindness of a fade cue
+         * Fades are level I with no particles and no icon, which potions and beacons never are.
+         * @param effect The player's blindness effect
+         * @return True if a fade applied the effect
+         */
+        static boolean isFade(PotionEffect effect) {
+            return effect.getAmplifier() == 0 && !effect.isAmbient() && !effect.hasParticles() && !effect.hasIcon();
+        }
+
+        /**
+         * Fire the cue for one player, on the player's thread
+         */
+        void run(Player player, AquilaCine plugin) {
+            switch (action) {
+                case TITLE:
+                    player.showTitle(title);
+                    break;
+                case ACTIONBAR:
+                    player.sendActionBar(text);
+                    break;
+                case SOUND:
+                    player.playSound(sound, Sound.Emitter.self());
+                    break;
+                case COMMAND:
+                    String command = argument.replace("{player}", player.getName());
+                    if (plugin.getTaskScheduler().isRegionized()) {
+                        // Console commands belong to the global region on Folia
+                        plugin.getTaskScheduler().runGlobal(() ->
+                                plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), command));
+                    } else {
+                        plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), command);
+                    }
+                    break;
+                case TIME:
+                    player.setPlayerTime(time, false);
+                    break;
+                case FADE:
+                    player.addPotionEffect(new PotionEffect(PotionEffectType.BLINDNESS, ticks, 0, false, false, false));
+                    break;
+            }
+        }
+    }
+}
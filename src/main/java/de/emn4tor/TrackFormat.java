@@ -0,0 +1,291 @@
+package de.emn4tor;
+
+import de.emn4tor.path.BakedPath;
+import de.emn4tor.path.PathSimplifier;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * The binary format of recorded camera tracks (.ctrack)
+ * A track stores one sample per tick. Positions are quantized to 1/256 block and
+ * stored as the change in velocity since the previous tick, angles to 1/64 degree
+ * and stored as the change since the previous tick. Each sample starts with a flag
+ * byte saying which of the five values are non-zero, followed by those values as
+ * zigzag varints, so a camera that is standing still costs one byte per tick and
+ * a smooth flight rarely more than four.
+ */
+final class TrackFormat {
+    static final String EXTENSION = ".ctrack";
+    static final int MAGIC = 0x4354524B; // "CTRK"
+    static final int VERSION = 1;
+
+    private static final double POSITION_SCALE = 256.0;
+    private static final double ANGLE_SCALE = 64.0;
+
+    private TrackFormat() {
+    }
+
+    /**
+     * Write the header that starts every track file
+     * @param name The name of the drive
+     * @param worldName The world the track was recorded in
+     * @return The encoded header
+     */
+    static byte[] header(String name, String worldName) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(name);
+            out.writeUTF(worldName);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // cannot happen for an in-memory stream
+        }
+    }
+
+    /**
+     * Read a track file into a drive script whose frames are the recorded samples
+     * The simplifier only thins out the waypoints; every recorded sample is still played.
+     * @param file The track file
+     * @param simplifier The simplifier for the waypoints, or null to keep every sample as a waypoint
+     * @return The drive script
+     * @throws IOException If the file can't be read or isn't a valid track
+     */
+    static DriveScript read(File file, PathSimplifier simplifier) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a camera track");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported track version " + version);
+            }
+            String name = readUTF(in);
+            String worldName = readUTF(in);
+
+            Decoder decoder = new Decoder(in.remaining() + 1);
+            while (in.hasRemaining()) {
+                decoder.decode(in);
+            }
+            if (decoder.count < 2) {
+                throw new IOException("Track has fewer than 2 samples");
+            }
+
+            int count = decoder.count;
+            double[] x = Arrays.copyOf(decoder.x, count);
+            double[] y = Arrays.copyOf(decoder.y, count);
+            double[] z = Arrays.copyOf(decoder.z, count);
+            float[] yaw = Arrays.copyOf(decoder.yaw, count);
+            float[] pitch = Arrays.copyOf(decoder.pitch, count);
+            BakedPath path = BakedPath.fromFrames(x, y, z, yaw, pitch);
+            if (simplifier != null) {
+                int[] kept = simplifier.simplify(x, y, z, yaw, pitch, null);
+                x = PathSimplifier.select(x, kept);
+                y = PathSimplifier.select(y, kept);
+                z = PathSimplifier.select(z, kept);
+                yaw = PathSimplifier.select(yaw, kept);
+                pitch = PathSimplifier.select(pitch, kept);
+            }
+            return new DriveScript(file.getName(), name, worldName, x, y, z, yaw, pitch, path, count);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Track is truncated");
+        }
+    }
+
+    private static String readUTF(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Turns samples into the delta-encoded byte stream
+     * Not thread-safe; one encoder belongs to one recording.
+     */
+    static final class Encoder {
+        private byte[] buffer = new byte[4096];
+        private int size = 0;
+        private boolean first = true;
+        private long px, py, pz; // last quantized position
+        private long vx, vy, vz; // last quantized velocity
+        private long pyaw, ppitch; // last quantized angles, yaw unwrapped
+
+        /**
+         * Append one sample
+         */
+        void encode(double x, double y, double z, float yaw, float pitch) {
+            long qx = Math.round(x * POSITION_SCALE);
+            long qy = Math.round(y * POSITION_SCALE);
+            long qz = Math.round(z * POSITION_SCALE);
+            long qpitch = Math.round(pitch * ANGLE_SCALE);
+            long qyaw;
+            if (first) {
+                qyaw = Math.round(yaw * ANGLE_SCALE);
+            } else {
+                // Unwrap yaw so turning past 180 degrees is a small step instead of a full turn
+                double previous = pyaw / ANGLE_SCALE;
+                qyaw = Math.round((previous + BakedPath.wrapDegrees(yaw - previous)) * ANGLE_SCALE);
+            }
+
+            long ax, ay, az, dyaw, dpitch;
+            if (first) {
+                // The first sample is absolute and starts at rest
+                ax = qx;
+                ay = qy;
+                az = qz;
+                dyaw = qyaw;
+                dpitch = qpitch;
+                first = false;
+            } else {
+                ax = (qx - px) - vx;
+                ay = (qy - py) - vy;
+                az = (qz - pz) - vz;
+                dyaw = qyaw - pyaw;
+                dpitch = qpitch - ppitch;
+                vx = qx - px;
+                vy = qy - py;
+                vz = qz - pz;
+            }
+            px = qx;
+            py = qy;
+            pz = qz;
+            pyaw = qyaw;
+            ppitch = qpitch;
+
+            ensureCapacity(1 + 5 * 10);
+            int flags = (ax != 0 ? 1 : 0) | (ay != 0 ? 2 : 0) | (az != 0 ? 4 : 0)
+                    | (dyaw != 0 ? 8 : 0) | (dpitch != 0 ? 16 : 0);
+            buffer[size++] = (byte) flags;
+            if (ax != 0) {
+                writeVarLong(ax);
+            }
+            if (ay != 0) {
+                writeVarLong(ay);
+            }
+            if (az != 0) {
+                writeVarLong(az);
+            }
+            if (dyaw != 0) {
+                writeVarLong(dyaw);
+            }
+            if (dpitch != 0) {
+                writeVarLong(dpitch);
+            }
+        }
+
+        /**
+         * Get the number of encoded bytes not yet drained
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Take the encoded bytes, leaving the encoder empty
+         * @return The bytes encoded since the last drain
+         */
+        byte[] drain() {
+            byte[] bytes = Arrays.copyOf(buffer, size);
+            size = 0;
+            return bytes;
+        }
+
+        private void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[size++] = (byte) zigzag;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Reverses the encoder, collecting samples into growing arrays
+     */
+    private static final class Decoder {
+        private double[] x, y, z;
+        private float[] yaw, pitch;
+        private int count = 0;
+        private long px, py, pz, vx, vy, vz, pyaw, ppitch;
+
+        Decoder(int expectedSamples) {
+            int capacity = Math.max(16, expectedSamples);
+            x = new double[capacity];
+            y = new double[capacity];
+            z = new double[capacity];
+            yaw = new float[capacity];
+            pitch = new float[capacity];
+        }
+
+        void decode(ByteBuffer in) throws IOException {
+            int flags = in.get() & 0xFF;
+            if ((flags & ~0x1F) != 0) {
+                throw new IOException("Corrupt sample at byte " + (in.position() - 1));
+            }
+            long ax = (flags & 1) != 0 ? readVarLong(in) : 0;
+            long ay = (flags & 2) != 0 ? readVarLong(in) : 0;
+            long az = (flags & 4) != 0 ? readVarLong(in) : 0;
+            long dyaw = (flags & 8) != 0 ? readVarLong(in) : 0;
+            long dpitch = (flags & 16) != 0 ? readVarLong(in) : 0;
+
+            if (count == 0) {
+                px = ax;
+                py = ay;
+                pz = az;
+            } else {
+                vx += ax;
+                vy += ay;
+                vz += az;
+                px += vx;
+                py += vy;
+                pz += vz;
+            }
+            pyaw += dyaw;
+            ppitch += dpitch;
+
+            if (count == x.length) {
+                int capacity = count * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                z = Arrays.copyOf(z, capacity);
+                yaw = Arrays.copyOf(yaw, capacity);
+                pitch = Arrays.copyOf(pitch, capacity);
+            }
+            x[count] = px / POSITION_SCALE;
+            y[count] = py / POSITION_SCALE;
+            z[count] = pz / POSITION_SCALE;
+            yaw[count] = (float) (pyaw / ANGLE_SCALE);
+            pitch[count] = (float) (ppitch / ANGLE_SCALE);
+            count++;
+        }
+
+        private static long readVarLong(ByteBuffer in) throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (result >>> 1) ^ -(result & 1);
+                }
+            }
+            throw new IOException("Malformed varint at byte " + in.position());
+        }
+    }
+}
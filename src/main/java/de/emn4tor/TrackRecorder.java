@@ -0,0 +1,167 @@
+package de.emn4tor;
+
+import de.emn4tor.scheduler.SchedulerTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Records one player's flight into a track file
+ * Sampling only copies the player's location and encodes it into a small buffer.
+ * Full buffers are handed to the writer thread, which appends them to a temporary
+ * file that is moved into place once the recording is finished.
+ */
+public class TrackRecorder {
+    private static final int FLUSH_BYTES = 4096;
+
+    private final Player player;
+    private final String name;
+    private final World world;
+    private final File target;
+    private final File partFile;
+    private final Executor writer;
+    private final int maxSamples;
+    private final TrackFormat.Encoder encoder = new TrackFormat.Encoder();
+    private final Location sample;
+    private CompletableFuture<Void> pending; // the chain of writes, in order
+    private FileChannel channel; // only touched on the writer thread
+    private int samples = 0;
+    SchedulerTask task; // the sampling task, set by the recording manager
+
+    /**
+     * @param player The player to record
+     * @param name The name of the drive being recorded
+     * @param target The track file to create
+     * @param writer The executor that writes to disk
+     * @param maxSamples The number of samples after which the recording stops
+     */
+    public TrackRecorder(Player player, String name, File target, Executor writer, int maxSamples) {
+        this.player = player;
+        this.name = name;
+        this.world = player.getWorld();
+        this.target = target;
+        this.partFile = new File(target.getParentFile(), target.getName() + "." + player.getUniqueId() + ".part");
+        this.writer = writer;
+        this.maxSamples = maxSamples;
+        this.sample = new Location(world, 0, 0, 0);
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Open the track file on the writer thread and write its header
+     */
+    void start() {
+        byte[] header = TrackFormat.header(name, world.getName());
+        pending = CompletableFuture.runAsync(() -> {
+            try {
+                channel = FileChannel.open(partFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                write(header);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+    }
+
+    /**
+     * Record the player's current position, once per tick
+     * @return False if the recording has to end, because the player left the world or the time limit was hit
+     */
+    boolean sample() {
+        if (!player.isOnline() || player.getWorld() != world || samples >= maxSamples) {
+            return false;
+        }
+
+        player.getLocation(sample);
+        encoder.encode(sample.getX(), sample.getY(), sample.getZ(), sample.getYaw(), sample.getPitch());
+        samples++;
+        if (encoder.size() >= FLUSH_BYTES) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Write the remaining samples and move the track into place
+     * @return A future for the finished track file
+     */
+    CompletableFuture<File> finish() {
+        flush();
+        return pending.thenApplyAsync(ignored -> {
+            try {
+                closeChannel();
+                if (samples < 2) {
+                    Files.deleteIfExists(partFile.toPath());
+                    throw new IllegalStateException("Recording is too short");
+                }
+                Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                return target;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer).whenCompleteAsync((file, error) -> {
+            if (error != null) {
+                discard();
+            }
+        }, writer);
+    }
+
+    private void flush() {
+        if (encoder.size() == 0) {
+            return;
+        }
+        byte[] bytes = encoder.drain();
+        pending = pending.thenRunAsync(() -> {
+            try {
+                write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void discard() {
+        try {
+            closeChannel();
+            Files.deleteIfExists(partFile.toPath());
+        } catch (IOException ignored) {
+            // Nothing left to clean up
+        }
+    }
+}
@@ -7,16 +7,32 @@ package de.emn4tor.commands;
 
 import de.emn4tor.AquilaCine;
 import de.emn4tor.CameraDrive;
+import de.emn4tor.CameraDriveManager;
+import de.emn4tor.DriveArchive;
+import de.emn4tor.DriveInfo;
+import de.emn4tor.PathAnalyzer;
+import de.emn4tor.RecordingManager;
+import de.emn4tor.metrics.DriveMetrics;
+import de.emn4tor.metrics.TickHistogram;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class CameraDriveCommand implements CommandExecutor, TabCompleter {
+    private static final int MAX_COMPLETIONS = 100; // more than a client shows at once
+    private static final double MIN_RATE = 0.1;
+    private static final double MAX_RATE = 4.0;
+    private static final DateTimeFormatter ARCHIVE_NAME = DateTimeFormatter.ofPattern("'drives-'yyyyMMdd-HHmmss");
+
     private final AquilaCine plugin;
 
     public CameraDriveCommand(AquilaCine plugin) {
@@ -43,12 +59,71 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
                 }
                 startDrive(sender, args[1]);
                 break;
+            case "join":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive join <drive-name></red>"));
+                    return true;
+                }
+                joinDrive(sender, args[1]);
+                break;
+            case "broadcast":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive broadcast <drive-name></red>"));
+                    return true;
+                }
+                broadcastDrive(sender, args[1]);
+                break;
             case "stop":
                 stopDrive(sender);
                 break;
+            case "seek":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive seek <seconds></red>"));
+                    return true;
+                }
+                seek(sender, args[1]);
+                break;
+            case "pause":
+            case "resume":
+                pause(sender, subCommand.equals("pause"));
+                break;
+            case "rate":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive rate <0.1-4></red>"));
+                    return true;
+                }
+                setRate(sender, args[1]);
+                break;
             case "reload":
                 reloadDrives(sender);
                 break;
+            case "analyze":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive analyze <drive-name></red>"));
+                    return true;
+                }
+                analyzeDrive(sender, args[1]);
+                break;
+            case "export":
+                exportDrives(sender, args.length > 1 ? args[1] : LocalDateTime.now().format(ARCHIVE_NAME));
+                break;
+            case "import":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive import <archive-name></red>"));
+                    return true;
+                }
+                importDrives(sender, args[1]);
+                break;
+            case "record":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("<red>Usage: /cameradrive record <drive-name|stop></red>"));
+                    return true;
+                }
+                record(sender, args[1]);
+                break;
+            case "stats":
+                showStats(sender, args.length > 1 && args[1].equalsIgnoreCase("reset"));
+                break;
             case "help":
             default:
                 sendHelp(sender);
@@ -62,12 +137,22 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(plugin.formatMessage("<gold>===== Camera Drives Help =====</gold>"));
         sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive list</yellow> - List all available camera drives"));
         sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive start <name></yellow> - Start a camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive join <name></yellow> - Join the shared playback of a camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive broadcast <name></yellow> - Play a camera drive for all online players"));
         sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive stop</yellow> - Stop your current camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive seek <seconds></yellow> - Jump to a point in your current camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive pause|resume</yellow> - Hold or continue your current camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive rate <0.1-4></yellow> - Change the playback rate of your current camera drive"));
         sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive reload</yellow> - Reload all camera drive scripts"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive analyze <name></yellow> - Find where a camera drive flies through terrain or looks into walls"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive export [archive]</yellow> - Pack all camera drives into one archive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive import <archive></yellow> - Unpack an archive and load the drives that changed"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive record <name|stop></yellow> - Record your flight as a new camera drive"));
+        sender.sendMessage(plugin.formatMessage("<yellow>/cameradrive stats [reset]</yellow> - Show playback and loading metrics"));
     }
 
     private void listDrives(CommandSender sender) {
-        List<CameraDrive> drives = new ArrayList<>(plugin.getDriveManager().getAllDrives());
+        List<DriveInfo> drives = new ArrayList<>(plugin.getDriveManager().getAllDrives());
 
         if (drives.isEmpty()) {
             sender.sendMessage(plugin.formatMessage("<yellow>No camera drives available. Add script files to the 'scripts' folder.</yellow>"));
@@ -75,10 +160,49 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
         }
 
         sender.sendMessage(plugin.formatMessage("<gold>===== Available Camera Drives =====</gold>"));
-        for (CameraDrive drive : drives) {
+        for (DriveInfo drive : drives) {
             sender.sendMessage(plugin.formatMessage("<aqua>" + drive.getName() + "</aqua> - " +
-                    drive.getWaypoints().size() + " waypoints, " + drive.getSpeed() + " blocks/sec"));
+                    drive.getWaypointCount() + " waypoints, " + String.format("%.0f", drive.getLength()) + " blocks, "
+                    + String.format("%.1f", drive.getDuration()) + "s, " + drive.getSpeed() + " blocks/sec"));
+        }
+    }
+
+    /**
+     * Look up a drive and run an action with it once its waypoints are loaded
+     * Drives that were played recently are still in memory and run right away; others are
+     * loaded off the main thread, and the action then runs on the sender's thread.
+     * @param sender The sender who asked for the drive
+     * @param driveName The name of the drive
+     * @param action The action to run with the loaded drive
+     */
+    private void withDrive(CommandSender sender, String driveName, Consumer<CameraDrive> action) {
+        DriveInfo info = plugin.getDriveManager().getDrive(driveName);
+        if (info == null) {
+            sender.sendMessage(plugin.formatMessage("<red>Camera drive not found: " + driveName + "</red>"));
+            return;
+        }
+        if (info.getWaypointCount() < 2) {
+            sender.sendMessage(plugin.formatMessage("<red>This camera drive doesn't have enough waypoints!</red>"));
+            return;
+        }
+
+        CompletableFuture<CameraDrive> loading = plugin.getScriptManager().loadDrive(info);
+        if (loading.isDone() && !loading.isCompletedExceptionally()) {
+            action.accept(loading.join());
+            return;
         }
+
+        loading.whenComplete((drive, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                sender.sendMessage(plugin.formatMessage("<red>Failed to load camera drive " + info.getName() + ": "
+                        + cause.getMessage() + "</red>"));
+            } else if (sender instanceof Player) {
+                plugin.getTaskScheduler().runFor((Player) sender, () -> action.accept(drive));
+            } else {
+                plugin.getTaskScheduler().runGlobal(() -> action.accept(drive));
+            }
+        });
     }
 
     private void startDrive(CommandSender sender, String driveName) {
@@ -88,19 +212,55 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
         }
 
         Player player = (Player) sender;
-        CameraDrive drive = plugin.getDriveManager().getDrive(driveName);
+        if (plugin.getDriveManager().isInDriveSession(player)) {
+            sender.sendMessage(plugin.formatMessage("<red>You are already in a camera drive. Use /cameradrive stop first.</red>"));
+            return;
+        }
 
-        if (drive == null) {
-            sender.sendMessage(plugin.formatMessage("<red>Camera drive not found: " + driveName + "</red>"));
+        withDrive(sender, driveName, drive -> {
+            // The player may have started another drive while this one was loading
+            if (player.isOnline() && !plugin.getDriveManager().isInDriveSession(player)) {
+                drive.startDrive(player, plugin);
+            }
+        });
+    }
+
+    private void joinDrive(CommandSender sender, String driveName) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.formatMessage("<red>Only players can use camera drives</red>"));
             return;
         }
 
+        Player player = (Player) sender;
         if (plugin.getDriveManager().isInDriveSession(player)) {
             sender.sendMessage(plugin.formatMessage("<red>You are already in a camera drive. Use /cameradrive stop first.</red>"));
             return;
         }
 
-        drive.startDrive(player, plugin);
+        withDrive(sender, driveName, drive -> {
+            if (player.isOnline() && !plugin.getDriveManager().isInDriveSession(player)) {
+                plugin.getDriveManager().joinBroadcast(player, drive);
+            }
+        });
+    }
+
+    private void broadcastDrive(CommandSender sender, String driveName) {
+        if (!sender.hasPermission("cameradrives.broadcast")) {
+            sender.sendMessage(plugin.formatMessage("<red>You don't have permission to broadcast camera drives</red>"));
+            return;
+        }
+
+        withDrive(sender, driveName, drive -> {
+            int viewers = 0;
+            for (Player player : plugin.getServer().getOnlinePlayers()) {
+                if (player.hasPermission("cameradrives.use") && !plugin.getDriveManager().isInDriveSession(player)) {
+                    // Each player is attached on their own region on Folia
+                    plugin.getTaskScheduler().runFor(player, () -> plugin.getDriveManager().joinBroadcast(player, drive));
+                    viewers++;
+                }
+            }
+            sender.sendMessage(plugin.formatMessage("<green>Broadcasting " + drive.getName() + " to " + viewers + " players</green>"));
+        });
     }
 
     private void stopDrive(CommandSender sender) {
@@ -120,14 +280,298 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(plugin.formatMessage("<green>Camera drive stopped</green>"));
     }
 
+    /**
+     * Get the sender's own drive session, telling them if they have none
+     * @param sender The sender
+     * @return The session, or null
+     */
+    private CameraDrive.CameraDriveSession ownSession(CommandSender sender) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.formatMessage("<red>Only players can use camera drives</red>"));
+            return null;
+        }
+
+        CameraDrive.CameraDriveSession session = plugin.getDriveManager().getActiveSession((Player) sender);
+        if (session == null) {
+            sender.sendMessage(plugin.formatMessage("<red>You are not playing a camera drive of your own</red>"));
+        }
+        return session;
+    }
+
+    private void seek(CommandSender sender, String argument) {
+        CameraDrive.CameraDriveSession session = ownSession(sender);
+        if (session == null) {
+            return;
+        }
+
+        double seconds;
+        try {
+            seconds = Double.parseDouble(argument);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(plugin.formatMessage("<red>Not a number of seconds: " + argument + "</red>"));
+            return;
+        }
+        if (!(seconds >= 0)) {
+            sender.sendMessage(plugin.formatMessage("<red>The time can't be negative</red>"));
+            return;
+        }
+
+        session.seek(seconds);
+        sender.sendMessage(plugin.formatMessage("<green>Jumped to " + String.format("%.1f", session.getTime()) + "s of "
+                + String.format("%.1f", session.getDrive().getPath().getDuration()) + "s</green>"));
+    }
+
+    private void pause(CommandSender sender, boolean pause) {
+        CameraDrive.CameraDriveSession session = ownSession(sender);
+        if (session == null) {
+            return;
+        }
+
+        if (pause) {
+            session.pause();
+            sender.sendMessage(plugin.formatMessage("<green>Paused at " + String.format("%.1f", session.getTime())
+                    + "s. Use /cameradrive resume to continue</green>"));
+        } else {
+            session.resume();
+            sender.sendMessage(plugin.formatMessage("<green>Resumed at " + String.format("%.1f", session.getTime()) + "s</green>"));
+        }
+    }
+
+    private void setRate(CommandSender sender, String argument) {
+        CameraDrive.CameraDriveSession session = ownSession(sender);
+        if (session == null) {
+            return;
+        }
+
+        double rate;
+        try {
+            rate = Double.parseDouble(argument);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(plugin.formatMessage("<red>Not a number: " + argument + "</red>"));
+            return;
+        }
+        if (!(rate >= MIN_RATE && rate <= MAX_RATE)) {
+            sender.sendMessage(plugin.formatMessage("<red>The rate must be between " + MIN_RATE + " and " + MAX_RATE + "</red>"));
+            return;
+        }
+
+        session.setRate(rate);
+        sender.sendMessage(plugin.formatMessage("<green>Playing at " + rate + "x</green>"));
+    }
+
     private void reloadDrives(CommandSender sender) {
         if (!sender.hasPermission("cameradrives.reload")) {
             sender.sendMessage(plugin.formatMessage("<red>You don't have permission to reload camera drives</red>"));
             return;
         }
 
-        plugin.getScriptManager().loadCameraDrives();
-        sender.sendMessage(plugin.formatMessage("<green>Camera drives reloaded!</green>"));
+        sender.sendMessage(plugin.formatMessage("<yellow>Reloading camera drives...</yellow>"));
+        plugin.getScriptManager().loadCameraDrives().whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                sender.sendMessage(plugin.formatMessage("<red>Failed to reload camera drives: " + cause.getMessage() + "</red>"));
+                return;
+            }
+            sender.sendMessage(plugin.formatMessage(
+                    "<green>Camera drives reloaded! " + result.getLoaded() + " loaded in " + result.getElapsedMillis() + " ms"
+                            + (result.getFailures().isEmpty() ? "" : ", <red>" + result.getFailures().size() + " failed</red>")
+                            + "</green>"));
+        });
+    }
+
+    private void analyzeDrive(CommandSender sender, String driveName) {
+        if (!sender.hasPermission("cameradrives.analyze")) {
+            sender.sendMessage(plugin.formatMessage("<red>You don't have permission to analyze camera drives</red>"));
+            return;
+        }
+
+        withDrive(sender, driveName, drive -> {
+            sender.sendMessage(plugin.formatMessage("<yellow>Analyzing " + drive.getName() + "...</yellow>"));
+            new PathAnalyzer(plugin, plugin.getScriptManager().getExecutor()).analyze(drive).whenComplete((report, error) -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    sender.sendMessage(plugin.formatMessage("<red>Failed to analyze " + drive.getName() + ": " + cause.getMessage() + "</red>"));
+                    return;
+                }
+                sendReport(sender, drive, report);
+            });
+        });
+    }
+
+    private void sendReport(CommandSender sender, CameraDrive drive, PathAnalyzer.Report report) {
+        sender.sendMessage(plugin.formatMessage("<gold>===== Analysis of " + drive.getName() + " =====</gold>"));
+        sender.sendMessage(plugin.formatMessage("<aqua>Checked</aqua> " + report.getFrames() + " frames against "
+                + report.getChunks() + " chunks (snapshots " + report.getCaptureMillis() + " ms, analysis "
+                + report.getAnalysisMillis() + " ms)"));
+        if (report.getMissingChunks() > 0) {
+            sender.sendMessage(plugin.formatMessage("<gray>" + report.getMissingChunks()
+                    + " chunks along the path were never generated and could not be checked</gray>"));
+        }
+
+        List<PathAnalyzer.Issue> issues = report.getIssues();
+        if (issues.isEmpty()) {
+            sender.sendMessage(plugin.formatMessage("<green>No collisions or blocked views found</green>"));
+            return;
+        }
+        int shown = Math.min(issues.size(), 10);
+        for (int i = 0; i < shown; i++) {
+            PathAnalyzer.Issue issue = issues.get(i);
+            String kind = issue.getKind() == PathAnalyzer.Issue.Kind.COLLISION
+                    ? "<red>Inside terrain</red>" : "<yellow>View blocked</yellow>";
+            sender.sendMessage(plugin.formatMessage(kind + " " + String.format("%.2fs-%.2fs", issue.getStartTime(), issue.getEndTime())
+                    + " <gray>at " + issue.getPosition() + "</gray>"));
+        }
+        if (issues.size() > shown) {
+            sender.sendMessage(plugin.formatMessage("<gray>... and " + (issues.size() - shown) + " more</gray>"));
+        }
+    }
+
+    private void exportDrives(CommandSender sender, String archiveName) {
+        if (!checkArchive(sender, archiveName)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        plugin.getScriptManager().exportDrives(archiveName).whenComplete((summary, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                sender.sendMessage(plugin.formatMessage("<red>Failed to export camera drives: " + cause.getMessage() + "</red>"));
+                return;
+            }
+            sender.sendMessage(plugin.formatMessage("<green>Exported " + summary.getFiles() + " scripts ("
+                    + String.format("%.1f", summary.getBytes() / 1024.0) + " KiB) to " + archiveName + DriveArchive.EXTENSION
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms</green>"));
+        });
+    }
+
+    private void importDrives(CommandSender sender, String archiveName) {
+        if (!checkArchive(sender, archiveName)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        sender.sendMessage(plugin.formatMessage("<yellow>Importing " + archiveName + DriveArchive.EXTENSION + "...</yellow>"));
+        plugin.getScriptManager().importDrives(archiveName).whenComplete((summary, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                sender.sendMessage(plugin.formatMessage("<red>Failed to import " + archiveName + ": " + cause.getMessage() + "</red>"));
+                return;
+            }
+            sender.sendMessage(plugin.formatMessage("<green>Imported " + summary.getFiles() + " scripts in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms: " + summary.getChanged().size() + " changed and reloaded, "
+                    + (summary.getFiles() - summary.getChanged().size()) + " unchanged</green>"));
+        });
+    }
+
+    /**
+     * Check the permission and archive name of an export or import
+     * @return True if the command may go ahead
+     */
+    private boolean checkArchive(CommandSender sender, String archiveName) {
+        if (!sender.hasPermission("cameradrives.archive")) {
+            sender.sendMessage(plugin.formatMessage("<red>You don't have permission to import or export camera drives</red>"));
+            return false;
+        }
+        if (!archiveName.matches("[A-Za-z0-9_-]{1,64}")) {
+            sender.sendMessage(plugin.formatMessage("<red>Archive names may only contain letters, digits, '-' and '_'</red>"));
+            return false;
+        }
+        return true;
+    }
+
+    private void record(CommandSender sender, String argument) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.formatMessage("<red>Only players can record camera drives</red>"));
+            return;
+        }
+        if (!sender.hasPermission("cameradrives.record")) {
+            sender.sendMessage(plugin.formatMessage("<red>You don't have permission to record camera drives</red>"));
+            return;
+        }
+
+        Player player = (Player) sender;
+        RecordingManager recordings = plugin.getRecordingManager();
+        if (argument.equalsIgnoreCase("stop")) {
+            if (recordings.stopRecording(player) == null) {
+                sender.sendMessage(plugin.formatMessage("<red>You are not recording</red>"));
+            } else {
+                sender.sendMessage(plugin.formatMessage("<yellow>Saving recording...</yellow>"));
+            }
+            return;
+        }
+
+        if (!argument.matches("[A-Za-z0-9_-]{1,64}")) {
+            sender.sendMessage(plugin.formatMessage("<red>Drive names may only contain letters, digits, '-' and '_'</red>"));
+            return;
+        }
+        if (recordings.isRecording(player)) {
+            sender.sendMessage(plugin.formatMessage("<red>You are already recording. Use /cameradrive record stop first.</red>"));
+            return;
+        }
+        if (plugin.getDriveManager().isInDriveSession(player)) {
+            sender.sendMessage(plugin.formatMessage("<red>You can't record while in a camera drive</red>"));
+            return;
+        }
+        if (plugin.getDriveManager().getDrive(argument) != null) {
+            sender.sendMessage(plugin.formatMessage("<red>A camera drive named " + argument + " already exists</red>"));
+            return;
+        }
+
+        if (!recordings.startRecording(player, argument)) {
+            sender.sendMessage(plugin.formatMessage("<red>Someone is already recording a camera drive named " + argument + "</red>"));
+            return;
+        }
+        sender.sendMessage(plugin.formatMessage("<green>Recording " + argument + ". Fly your path, then use /cameradrive record stop</green>"));
+    }
+
+    private void showStats(CommandSender sender, boolean reset) {
+        if (!sender.hasPermission("cameradrives.stats")) {
+            sender.sendMessage(plugin.formatMessage("<red>You don't have permission to view camera drive stats</red>"));
+            return;
+        }
+
+        DriveMetrics metrics = plugin.getMetrics();
+        if (reset) {
+            metrics.reset();
+            sender.sendMessage(plugin.formatMessage("<green>Camera drive stats reset</green>"));
+            return;
+        }
+
+        TickHistogram tickTimes = metrics.getTickTimes();
+        CameraDriveManager driveManager = plugin.getDriveManager();
+        sender.sendMessage(plugin.formatMessage("<gold>===== Camera Drive Stats (last " + metrics.getSecondsSinceReset() + "s) =====</gold>"));
+        sender.sendMessage(plugin.formatMessage("<aqua>Sessions:</aqua> " + driveManager.getActiveSessionCount() + " active, "
+                + driveManager.getBroadcastCount() + " broadcasts, "
+                + driveManager.getChunkPreloader().getTicketCount() + " chunks held"));
+        sender.sendMessage(plugin.formatMessage("<aqua>Drives:</aqua> " + driveManager.getAllDrives().size() + " indexed, "
+                + plugin.getScriptManager().getLoadedDrives().size() + "/" + plugin.getScriptManager().getLoadedDrives().getCapacity()
+                + " loaded"));
+        sender.sendMessage(plugin.formatMessage("<aqua>Tick time:</aqua> p50 " + formatMicros(tickTimes.getPercentile(50))
+                + ", p99 " + formatMicros(tickTimes.getPercentile(99))
+                + ", max " + formatMicros(tickTimes.getMax())
+                + " (" + tickTimes.getCount() + " ticks)"));
+        sender.sendMessage(plugin.formatMessage("<aqua>Teleports:</aqua> " + String.format("%.1f", metrics.getTeleportsPerSecond()) + "/s ("
+                + metrics.getTeleportCount() + " total), "
+                + metrics.getRotationCount() + " rotations, "
+                + metrics.getSkippedFrameCount() + " frames skipped, "
+                + (metrics.getSyncChunkLoadCount() == 0 ? "<green>" : "<red>") + metrics.getSyncChunkLoadCount()
+                + " sync chunk loads" + (metrics.getSyncChunkLoadCount() == 0 ? "</green>" : "</red>")));
+
+        if (metrics.getLastLoadMillis() >= 0) {
+            sender.sendMessage(plugin.formatMessage("<aqua>Last load:</aqua> " + metrics.getLastLoadDrives() + " drives in "
+                    + metrics.getLastLoadMillis() + " ms"));
+        }
+        for (DriveMetrics.ScriptTiming timing : metrics.getSlowestScripts(5)) {
+            sender.sendMessage(plugin.formatMessage("  <gray>" + timing.getFileName() + "</gray> (" + timing.getDriveName() + "): "
+                    + formatMicros(timing.getNanos())));
+        }
+    }
+
+    private static String formatMicros(long nanos) {
+        if (nanos >= 1_000_000L) {
+            return String.format("%.2f ms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1f us", nanos / 1_000.0);
     }
 
     @Override
@@ -136,16 +580,19 @@ public class CameraDriveCommand implements CommandExecutor, TabCompleter {
 
         if (args.length == 1) {
             // First argument - subcommands
-            List<String> subCommands = List.of("list", "start", "stop", "reload", "help");
+            List<String> subCommands = List.of("list", "start", "join", "broadcast", "stop", "seek", "pause", "resume", "rate",
+                    "reload", "analyze", "export", "import", "record", "stats", "help");
             return filterCompletions(subCommands, args[0]);
-        } else if (args.length == 2 && args[0].equalsIgnoreCase("start")) {
-            // Second argument for 'start' - drive names
-            return filterCompletions(
-                    plugin.getDriveManager().getAllDrives().stream()
-                            .map(CameraDrive::getName)
-                            .collect(Collectors.toList()),
-                    args[1]
-            );
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("start") || args[0].equalsIgnoreCase("join")
+                || args[0].equalsIgnoreCase("broadcast") || args[0].equalsIgnoreCase("analyze"))) {
+            // Second argument - drive names, looked up in the sorted name index
+            return plugin.getDriveManager().completeDriveNames(args[1], MAX_COMPLETIONS);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("record")) {
+            return filterCompletions(List.of("stop"), args[1]);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            return filterCompletions(List.of("reset"), args[1]);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("rate")) {
+            return filterCompletions(List.of("0.25", "0.5", "1", "2"), args[1]);
         }
 
         return completions;
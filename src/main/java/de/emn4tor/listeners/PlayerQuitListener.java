@@ -0,0 +1,32 @@
+package de.emn4tor.listeners;
+
+import de.emn4tor.AquilaCine;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Ends the drives and recordings of players who leave the server
+ * Stopping a drive while the player is still attached restores their game mode,
+ * releases the chunks held for the drive and undoes what its cues changed.
+ */
+public class PlayerQuitListener implements Listener {
+    private final AquilaCine plugin;
+
+    public PlayerQuitListener(AquilaCine plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        if (plugin.getDriveManager().isInDriveSession(player)) {
+            plugin.getDriveManager().stopDrive(player);
+        }
+        if (plugin.getRecordingManager().isRecording(player)) {
+            plugin.getRecordingManager().stopRecording(player);
+        }
+    }
+}
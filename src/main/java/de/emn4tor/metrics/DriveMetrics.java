@@ -0,0 +1,220 @@
+package de.emn4tor.metrics;
+
+import de.emn4tor.DriveScript;
+import org.bukkit.Location;
+import org.bukkit.World;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters for drive playback and script loading
+ * Everything is recorded into lock-free counters, so sessions ticking on several
+ * region threads can record at the same time, and mirrored as Flight Recorder events.
+ */
+public class DriveMetrics {
+    private final TickHistogram tickTimes = new TickHistogram();
+    private final LongAdder teleports = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder skippedFrames = new LongAdder();
+    private final LongAdder syncChunkLoads = new LongAdder();
+    private final Map<String, ScriptTiming> scriptTimings = new ConcurrentHashMap<>(); // file name -> last load
+    private volatile long since = System.nanoTime();
+    private volatile long lastLoadMillis = -1;
+    private volatile int lastLoadDrives = 0;
+
+    /**
+     * Record one pass of the tick loop
+     * @param event The event begun when the pass started
+     * @param nanos The time the pass took
+     * @param sessions The number of sessions and broadcasts advanced
+     */
+    public void recordTick(DriveTickEvent event, long nanos, int sessions) {
+        tickTimes.record(nanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessions = sessions;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record teleports to a location, noting if its chunk still has to be loaded
+     * Must be called before the teleport.
+     * @param target The location the entities are moved to
+     * @param count The number of entities moved there
+     */
+    public void recordTeleport(Location target, int count) {
+        teleports.add(count);
+
+        World world = target.getWorld();
+        if (world == null) {
+            return;
+        }
+        int chunkX = (int) Math.floor(target.getX()) >> 4;
+        int chunkZ = (int) Math.floor(target.getZ()) >> 4;
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            syncChunkLoads.increment();
+            SyncChunkLoadEvent event = new SyncChunkLoadEvent();
+            if (event.shouldCommit()) {
+                event.world = world.getName();
+                event.chunkX = chunkX;
+                event.chunkZ = chunkZ;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Record a frame that was sent as a rotation instead of a teleport
+     */
+    public void recordRotation() {
+        rotations.increment();
+    }
+
+    /**
+     * Record a frame that was not sent because the player could not have noticed it
+     */
+    public void recordSkippedFrame() {
+        skippedFrames.increment();
+    }
+
+    /**
+     * Record the load of one script file
+     * @param event The event begun when the load started
+     * @param fileName The name of the script file
+     * @param script The loaded script
+     * @param nanos The time the load took
+     */
+    public void recordScriptLoad(ScriptLoadEvent event, String fileName, DriveScript script, long nanos) {
+        scriptTimings.put(fileName, new ScriptTiming(fileName, script.getName(), nanos));
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = fileName;
+            event.drive = script.getName();
+            event.waypoints = script.getX().length;
+            event.frames = script.getPath().getFrameCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Record a full load of the scripts folder
+     * @param elapsedMillis The time the load took
+     * @param drives The number of drives loaded
+     */
+    public void recordLoad(long elapsedMillis, int drives) {
+        lastLoadMillis = elapsedMillis;
+        lastLoadDrives = drives;
+    }
+
+    /**
+     * Forget a script file that was deleted
+     * @param fileName The name of the script file
+     */
+    public void forgetScript(String fileName) {
+        scriptTimings.remove(fileName);
+    }
+
+    /**
+     * Reset the tick and teleport counters, keeping the script load times
+     */
+    public void reset() {
+        tickTimes.reset();
+        teleports.reset();
+        rotations.reset();
+        skippedFrames.reset();
+        syncChunkLoads.reset();
+        since = System.nanoTime();
+    }
+
+    public TickHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public long getTeleportCount() {
+        return teleports.sum();
+    }
+
+    public long getRotationCount() {
+        return rotations.sum();
+    }
+
+    public long getSkippedFrameCount() {
+        return skippedFrames.sum();
+    }
+
+    public long getSyncChunkLoadCount() {
+        return syncChunkLoads.sum();
+    }
+
+    /**
+     * Get the average teleport rate since the counters were last reset
+     * @return Teleports per second
+     */
+    public double getTeleportsPerSecond() {
+        double seconds = (System.nanoTime() - since) / 1_000_000_000.0;
+        return seconds > 0 ? teleports.sum() / seconds : 0;
+    }
+
+    /**
+     * Get the time since the counters were last reset
+     * @return The time in seconds
+     */
+    public long getSecondsSinceReset() {
+        return (System.nanoTime() - since) / 1_000_000_000L;
+    }
+
+    /**
+     * Get the duration of the last full script load
+     * @return The duration in milliseconds, or -1 if no load has finished
+     */
+    public long getLastLoadMillis() {
+        return lastLoadMillis;
+    }
+
+    public int getLastLoadDrives() {
+        return lastLoadDrives;
+    }
+
+    /**
+     * Get the scripts that took longest to load
+     * @param limit The maximum number of scripts to return
+     * @return The slowest scripts, slowest first
+     */
+    public List<ScriptTiming> getSlowestScripts(int limit) {
+        List<ScriptTiming> timings = new ArrayList<>(scriptTimings.values());
+        timings.sort(Comparator.comparingLong(ScriptTiming::getNanos).reversed());
+        return timings.size() > limit ? timings.subList(0, limit) : timings;
+    }
+
+    /**
+     * How long the last load of one script file took
+     */
+    public static final class ScriptTiming {
+        private final String fileName;
+        private final String driveName;
+        private final long nanos;
+
+        ScriptTiming(String fileName, String driveName, long nanos) {
+            this.fileName = fileName;
+            this.driveName = driveName;
+            this.nanos = nanos;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getDriveName() {
+            return driveName;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package de.emn4tor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one pass of the drive tick loop
+ * On Folia one event is emitted per session tick instead, on the session's region thread.
+ */
+@Name("de.emn4tor.DriveTick")
+@Label("Camera Drive Tick")
+@Category({"AquilaCine", "Drives"})
+@Description("Time spent advancing camera drive sessions in one server tick")
+public class DriveTickEvent extends jdk.jfr.Event {
+    @Label("Sessions")
+    @Description("Sessions and broadcasts advanced in this pass")
+    public int sessions;
+}
@@ -0,0 +1,25 @@
+package de.emn4tor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the load of one script file, from the cache or by parsing it
+ */
+@Name("de.emn4tor.ScriptLoad")
+@Label("Camera Drive Script Load")
+@Category({"AquilaCine", "Scripts"})
+public class ScriptLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Drive")
+    public String drive;
+
+    @Label("Waypoints")
+    public int waypoints;
+
+    @Label("Frames")
+    public int frames;
+}
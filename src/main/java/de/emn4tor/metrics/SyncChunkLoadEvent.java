@@ -0,0 +1,24 @@
+package de.emn4tor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a drive moving an entity into a chunk that was not loaded yet
+ */
+@Name("de.emn4tor.SyncChunkLoad")
+@Label("Camera Drive Sync Chunk Load")
+@Category({"AquilaCine", "Drives"})
+@Description("A drive teleported into an unloaded chunk, forcing the server to load it")
+public class SyncChunkLoadEvent extends jdk.jfr.Event {
+    @Label("World")
+    public String world;
+
+    @Label("Chunk X")
+    public int chunkX;
+
+    @Label("Chunk Z")
+    public int chunkZ;
+}
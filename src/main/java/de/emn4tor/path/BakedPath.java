@@ -0,0 +1,445 @@
+package de.emn4tor.path;
+
+import org.bukkit.Location;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A camera path compiled into per-tick frames.
+ * Frames are stored as primitive arrays so a running session only has to read
+ * index {@code t} instead of recomputing the path every tick.
+ */
+public final class BakedPath {
+    public static final int TICKS_PER_SECOND = 20;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final float[] yaw;
+    private final float[] pitch;
+    private final double[] distance; // cumulative arc length at each frame
+    private final double[] waypointDistance; // cumulative arc length at each waypoint
+    private final double length;
+    private final PathTransform transform; // applied when a frame is read, the arrays are shared between instances
+    private final long[] chunks; // chunks the camera passes through, packed as in Chunk.getChunkKey
+    private final int[] chunkFrames; // first frame spent in each of those chunks
+
+    private BakedPath(double[] x, double[] y, double[] z, float[] yaw, float[] pitch,
+                      double[] distance, double[] waypointDistance, double length) {
+        this(x, y, z, yaw, pitch, distance, waypointDistance, length, PathTransform.IDENTITY);
+    }
+
+    private BakedPath(double[] x, double[] y, double[] z, float[] yaw, float[] pitch,
+                      double[] distance, double[] waypointDistance, double length, PathTransform transform) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.distance = distance;
+        this.waypointDistance = waypointDistance;
+        this.length = length;
+        this.transform = transform;
+
+        // Record every chunk the camera enters, in order; a chunk visited twice appears twice
+        long[] chunks = new long[16];
+        int[] chunkFrames = new int[16];
+        int chunkCount = 0;
+        for (int frame = 0; frame < x.length; frame++) {
+            long chunk = chunkKey((int) Math.floor(getX(frame)) >> 4, (int) Math.floor(getZ(frame)) >> 4);
+            if (chunkCount > 0 && chunks[chunkCount - 1] == chunk) {
+                continue;
+            }
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                chunkFrames = Arrays.copyOf(chunkFrames, chunkCount * 2);
+            }
+            chunks[chunkCount] = chunk;
+            chunkFrames[chunkCount++] = frame;
+        }
+        this.chunks = Arrays.copyOf(chunks, chunkCount);
+        this.chunkFrames = Arrays.copyOf(chunkFrames, chunkCount);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xffffffffL) | (chunkZ & 0xffffffffL) << 32;
+    }
+
+    /**
+     * Bake a list of waypoints into per-tick frames, moving in straight lines
+     * @param waypoints The waypoints of the path
+     * @param speed The speed in blocks per second
+     * @return The baked path
+     */
+    public static BakedPath bake(List<Location> waypoints, double speed) {
+        int count = waypoints.size();
+        double[] wx = new double[count];
+        double[] wy = new double[count];
+        double[] wz = new double[count];
+        float[] wyaw = new float[count];
+        float[] wpitch = new float[count];
+
+        for (int i = 0; i < count; i++) {
+            Location waypoint = waypoints.get(i);
+            wx[i] = waypoint.getX();
+            wy[i] = waypoint.getY();
+            wz[i] = waypoint.getZ();
+            wyaw[i] = waypoint.getYaw();
+            wpitch[i] = waypoint.getPitch();
+        }
+
+        return bake(wx, wy, wz, wyaw, wpitch, SpeedProfile.constant(speed), InterpolationMode.LINEAR.getInterpolator());
+    }
+
+    /**
+     * Bake waypoint coordinates into per-tick frames
+     * The curve is reparameterized by arc length, so the camera moves at the
+     * speed given by the profile regardless of how the interpolator spaces its parameter.
+     * @param wx The x coordinates of the waypoints
+     * @param wy The y coordinates of the waypoints
+     * @param wz The z coordinates of the waypoints
+     * @param wyaw The yaw of the waypoints
+     * @param wpitch The pitch of the waypoints
+     * @param speed The speed along the path
+     * @param interpolator The curve through the waypoints
+     * @return The baked path
+     */
+    public static BakedPath bake(double[] wx, double[] wy, double[] wz, float[] wyaw, float[] wpitch,
+                                 SpeedProfile speed, Interpolator interpolator) {
+        int count = wx.length;
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot bake a path without waypoints");
+        }
+
+        int segments = count > 1 ? interpolator.getSegmentCount(count) : 0;
+        int subdivisions = interpolator.getSubdivisions();
+        int samples = segments * subdivisions;
+
+        // Cumulative arc length at each sample of the curve
+        double[] arcLength = new double[samples + 1];
+        double[] point = new double[3];
+        if (segments > 0) {
+            interpolator.evaluate(wx, wy, wz, 0, 0, point);
+        } else {
+            point[0] = wx[0];
+            point[1] = wy[0];
+            point[2] = wz[0];
+        }
+        double px = point[0];
+        double py = point[1];
+        double pz = point[2];
+        for (int segment = 0; segment < segments; segment++) {
+            for (int k = 1; k <= subdivisions; k++) {
+                interpolator.evaluate(wx, wy, wz, segment, (double) k / subdivisions, point);
+                double dx = point[0] - px;
+                double dy = point[1] - py;
+                double dz = point[2] - pz;
+                int sample = segment * subdivisions + k;
+                arcLength[sample] = arcLength[sample - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+                px = point[0];
+                py = point[1];
+                pz = point[2];
+            }
+        }
+        double length = arcLength[samples];
+
+        // Cumulative arc length at each waypoint; off-curve handles get the length at their share of the segment
+        double[] waypointDistance = new double[count];
+        for (int segment = 0; segment < segments; segment++) {
+            int first = interpolator.getSegmentStart(segment);
+            int last = segmentEnd(interpolator, segment, segments, count);
+            for (int waypoint = first; waypoint < last; waypoint++) {
+                double position = (double) (waypoint - first) / (last - first) * subdivisions;
+                int sample = segment * subdivisions + (int) position;
+                double fraction = position - (int) position;
+                waypointDistance[waypoint] = arcLength[sample] + (arcLength[Math.min(sample + 1, samples)] - arcLength[sample]) * fraction;
+            }
+        }
+        waypointDistance[count - 1] = length;
+
+        // One frame per tick, the last one landing exactly on the last waypoint
+        double[] distance = speed.compile(waypointDistance, length);
+        int frames = distance.length;
+
+        double[] x = new double[frames];
+        double[] y = new double[frames];
+        double[] z = new double[frames];
+        float[] yaw = new float[frames];
+        float[] pitch = new float[frames];
+
+        int sample = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            double d = distance[frame];
+            if (segments == 0) {
+                x[frame] = wx[0];
+                y[frame] = wy[0];
+                z[frame] = wz[0];
+                yaw[frame] = wyaw[0];
+                pitch[frame] = wpitch[0];
+                continue;
+            }
+
+            // Frames only move forward, so the sample cursor never has to search backwards
+            while (sample < samples - 1 && arcLength[sample + 1] < d) {
+                sample++;
+            }
+            double sampleLength = arcLength[sample + 1] - arcLength[sample];
+            double fraction = sampleLength > 0 ? (d - arcLength[sample]) / sampleLength : 1.0;
+            int segment = sample / subdivisions;
+            double t = ((sample % subdivisions) + fraction) / subdivisions;
+
+            interpolator.evaluate(wx, wy, wz, segment, t, point);
+            x[frame] = point[0];
+            y[frame] = point[1];
+            z[frame] = point[2];
+
+            // Rotation blends between the segment's end waypoints by distance travelled
+            double segmentStart = arcLength[segment * subdivisions];
+            double segmentLength = arcLength[(segment + 1) * subdivisions] - segmentStart;
+            double blend = segmentLength > 0 ? (d - segmentStart) / segmentLength : 1.0;
+            int first = interpolator.getSegmentStart(segment);
+            int last = segmentEnd(interpolator, segment, segments, count);
+            yaw[frame] = blendAngle(wyaw[first], wyaw[last], blend);
+            pitch[frame] = blendAngle(wpitch[first], wpitch[last], blend);
+
+            // Keep yaw continuous across waypoints instead of jumping by whole turns
+            if (frame > 0) {
+                yaw[frame] = (float) (yaw[frame - 1] + wrapDegrees(yaw[frame] - yaw[frame - 1]));
+            }
+        }
+
+        return new BakedPath(x, y, z, yaw, pitch, distance, waypointDistance, length);
+    }
+
+    /**
+     * Wrap frames that were already sampled once per tick, such as a recorded flight
+     * Every frame also counts as a waypoint.
+     * @param x The x coordinate of each frame
+     * @param y The y coordinate of each frame
+     * @param z The z coordinate of each frame
+     * @param yaw The yaw of each frame
+     * @param pitch The pitch of each frame
+     * @return The baked path
+     */
+    public static BakedPath fromFrames(double[] x, double[] y, double[] z, float[] yaw, float[] pitch) {
+        int frames = x.length;
+        if (frames == 0) {
+            throw new IllegalArgumentException("Cannot bake a path without frames");
+        }
+
+        double[] distance = new double[frames];
+        for (int frame = 1; frame < frames; frame++) {
+            double dx = x[frame] - x[frame - 1];
+            double dy = y[frame] - y[frame - 1];
+            double dz = z[frame] - z[frame - 1];
+            distance[frame] = distance[frame - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+        return new BakedPath(x, y, z, yaw, pitch, distance, distance, distance[frames - 1]);
+    }
+
+    /**
+     * Place a copy of this path elsewhere without copying its frames
+     * Only the chunks the copy passes through are computed again. A transform this
+     * path already has is replaced, not combined.
+     * @param transform Where to place the copy
+     * @return The placed path, sharing its frames with this one
+     */
+    public BakedPath instantiate(PathTransform transform) {
+        return new BakedPath(x, y, z, yaw, pitch, distance, waypointDistance, length, transform);
+    }
+
+    public PathTransform getTransform() {
+        return transform;
+    }
+
+    private static int segmentEnd(Interpolator interpolator, int segment, int segments, int count) {
+        return segment + 1 < segments ? interpolator.getSegmentStart(segment + 1) : count - 1;
+    }
+
+    /**
+     * Blend between two angles along the shortest arc
+     * Going from 270 to 360 turns by 90 degrees, and from 170 to -170 by 20.
+     * @param from The start angle in degrees
+     * @param to The end angle in degrees
+     * @param t The blend factor in [0, 1]
+     * @return The blended angle
+     */
+    public static float blendAngle(float from, float to, double t) {
+        return (float) (from + wrapDegrees(to - from) * t);
+    }
+
+    /**
+     * Wrap an angle difference into [-180, 180)
+     * @param degrees The angle in degrees
+     * @return The equivalent angle closest to zero
+     */
+    public static double wrapDegrees(double degrees) {
+        return ((degrees % 360) + 540) % 360 - 180;
+    }
+
+    public int getFrameCount() {
+        return x.length;
+    }
+
+    public double getX(int frame) {
+        return transform.applyX(x[frame], z[frame]);
+    }
+
+    public double getY(int frame) {
+        return transform.applyY(y[frame]);
+    }
+
+    public double getZ(int frame) {
+        return transform.applyZ(x[frame], z[frame]);
+    }
+
+    public float getYaw(int frame) {
+        return transform.applyYaw(yaw[frame]);
+    }
+
+    public float getPitch(int frame) {
+        return pitch[frame];
+    }
+
+    /**
+     * Get the distance travelled along the path at a frame
+     * @param frame The frame index
+     * @return The cumulative arc length in blocks
+     */
+    public double getDistance(int frame) {
+        return distance[frame];
+    }
+
+    /**
+     * Get the distance along the path at which a waypoint is reached
+     * @param waypoint The waypoint index
+     * @return The cumulative arc length in blocks
+     */
+    public double getWaypointDistance(int waypoint) {
+        return waypointDistance[waypoint];
+    }
+
+    public int getWaypointCount() {
+        return waypointDistance.length;
+    }
+
+    /**
+     * Get the frame at which the camera reaches a waypoint
+     * @param waypoint The waypoint index
+     * @return The first frame at or past the waypoint
+     */
+    public int getWaypointFrame(int waypoint) {
+        double target = waypointDistance[waypoint];
+        int low = 0;
+        int high = distance.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (distance[middle] < target - 1e-9) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the total length of the path
+     * @return The length in blocks
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Get the duration of the path
+     * @return The duration in seconds
+     */
+    public double getDuration() {
+        return (double) (getFrameCount() - 1) / TICKS_PER_SECOND;
+    }
+
+    /**
+     * Get the number of chunks the camera passes through
+     * Consecutive frames in the same chunk count once, a chunk entered again later counts again.
+     * @return The chunk count
+     */
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    public int getChunkX(int index) {
+        return (int) chunks[index];
+    }
+
+    public int getChunkZ(int index) {
+        return (int) (chunks[index] >> 32);
+    }
+
+    /**
+     * Find the chunk the camera is in at a frame
+     * A binary search over the frames at which the camera enters each chunk.
+     * @param frame The frame index
+     * @return The index of the chunk along the path
+     */
+    public int getChunkIndex(int frame) {
+        int index = Arrays.binarySearch(chunkFrames, frame);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    /**
+     * Get the frame shown at a point in time
+     * Frames are baked one per tick, so this is a direct index into the frame table.
+     * @param seconds The time since the start of the drive
+     * @return The frame index, clamped to the path
+     */
+    public double getFrameAt(double seconds) {
+        return Math.max(0, Math.min(seconds * TICKS_PER_SECOND, getFrameCount() - 1));
+    }
+
+    /**
+     * Get the frame at which the camera enters a chunk
+     * @param index The index of the chunk along the path
+     * @return The first frame spent in the chunk
+     */
+    public int getChunkFrame(int index) {
+        return chunkFrames[index];
+    }
+
+    /**
+     * Copy a frame into an existing location without allocating
+     * @param frame The frame index
+     * @param target The location to write into
+     */
+    public void apply(int frame, Location target) {
+        target.setX(getX(frame));
+        target.setY(getY(frame));
+        target.setZ(getZ(frame));
+        target.setYaw(getYaw(frame));
+        target.setPitch(pitch[frame]);
+    }
+
+    /**
+     * Copy a point between two frames into an existing location without allocating
+     * Used when the drive plays at a rate other than one frame per tick.
+     * @param position The fractional frame index, clamped to the path
+     * @param target The location to write into
+     */
+    public void apply(double position, Location target) {
+        int last = x.length - 1;
+        int frame = Math.max(0, Math.min((int) position, last));
+        double t = position - frame;
+        if (frame == last || !(t > 0)) {
+            apply(frame, target);
+            return;
+        }
+
+        double blendX = x[frame] + (x[frame + 1] - x[frame]) * t;
+        double blendZ = z[frame] + (z[frame + 1] - z[frame]) * t;
+        target.setX(transform.applyX(blendX, blendZ));
+        target.setY(transform.applyY(y[frame] + (y[frame + 1] - y[frame]) * t));
+        target.setZ(transform.applyZ(blendX, blendZ));
+        target.setYaw(transform.applyYaw(blendAngle(yaw[frame], yaw[frame + 1], t)));
+        target.setPitch((float) (pitch[frame] + (pitch[frame + 1] - pitch[frame]) * t));
+    }
+}
@@ -0,0 +1,50 @@
+package de.emn4tor.path;
+
+/**
+ * A chain of cubic Bezier curves
+ * Waypoints are read as anchor, handle, handle, anchor, handle, handle, anchor...
+ * The camera passes through the anchors and is pulled towards the handles.
+ * A final group with fewer than three points becomes a quadratic curve or a line.
+ */
+public class BezierInterpolator implements Interpolator {
+    private static final int SUBDIVISIONS = 16;
+
+    @Override
+    public int getSegmentCount(int waypoints) {
+        return (waypoints + 1) / 3;
+    }
+
+    @Override
+    public int getSegmentStart(int segment) {
+        return segment * 3;
+    }
+
+    @Override
+    public int getSubdivisions() {
+        return SUBDIVISIONS;
+    }
+
+    @Override
+    public void evaluate(double[] x, double[] y, double[] z, int segment, double t, double[] out) {
+        int start = segment * 3;
+        int degree = Math.min(3, x.length - 1 - start);
+        out[0] = bezier(x, start, degree, t);
+        out[1] = bezier(y, start, degree, t);
+        out[2] = bezier(z, start, degree, t);
+    }
+
+    private static double bezier(double[] p, int start, int degree, double t) {
+        double u = 1 - t;
+        switch (degree) {
+            case 3:
+                return u * u * u * p[start]
+                        + 3 * u * u * t * p[start + 1]
+                        + 3 * u * t * t * p[start + 2]
+                        + t * t * t * p[start + 3];
+            case 2:
+                return u * u * p[start] + 2 * u * t * p[start + 1] + t * t * p[start + 2];
+            default:
+                return u * p[start] + t * p[start + 1];
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.emn4tor.path;
+
+/**
+ * A uniform Catmull-Rom spline passing through every waypoint
+ * The first and last waypoints are repeated to give the end segments a tangent.
+ */
+public class CatmullRomInterpolator implements Interpolator {
+    private static final int SUBDIVISIONS = 16;
+
+    @Override
+    public int getSegmentCount(int waypoints) {
+        return waypoints - 1;
+    }
+
+    @Override
+    public int getSegmentStart(int segment) {
+        return segment;
+    }
+
+    @Override
+    public int getSubdivisions() {
+        return SUBDIVISIONS;
+    }
+
+    @Override
+    public void evaluate(double[] x, double[] y, double[] z, int segment, double t, double[] out) {
+        int last = x.length - 1;
+        int p0 = Math.max(segment - 1, 0);
+        int p1 = segment;
+        int p2 = Math.min(segment + 1, last);
+        int p3 = Math.min(segment + 2, last);
+
+        out[0] = catmullRom(x[p0], x[p1], x[p2], x[p3], t);
+        out[1] = catmullRom(y[p0], y[p1], y[p2], y[p3], t);
+        out[2] = catmullRom(z[p0], z[p1], z[p2], z[p3], t);
+    }
+
+    private static double catmullRom(double p0, double p1, double p2, double p3, double t) {
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return 0.5 * (2 * p1
+                + (p2 - p0) * t
+                + (2 * p0 - 5 * p1 + 4 * p2 - p3) * t2
+                + (3 * p1 - p0 - 3 * p2 + p3) * t3);
+    }
+}
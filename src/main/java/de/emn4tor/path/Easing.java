@@ -0,0 +1,60 @@
+package de.emn4tor.path;
+
+/**
+ * How the speed changes on the way to a speed keyframe
+ */
+public enum Easing {
+    STEP("step"),
+    LINEAR("linear"),
+    EASE_IN("ease-in"),
+    EASE_OUT("ease-out"),
+    EASE_IN_OUT("ease-in-out");
+
+    private final String key;
+
+    Easing(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get the name used in scripts
+     * @return The script key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Map linear progress onto the eased progress
+     * @param t The progress in [0, 1]
+     * @return The eased progress in [0, 1]
+     */
+    public double apply(double t) {
+        switch (this) {
+            case STEP:
+                return 0;
+            case EASE_IN:
+                return t * t;
+            case EASE_OUT:
+                return t * (2 - t);
+            case EASE_IN_OUT:
+                return t * t * (3 - 2 * t);
+            default:
+                return t;
+        }
+    }
+
+    /**
+     * Look up an easing by its script name
+     * @param name The name, case-insensitive
+     * @return The easing, or null if there is none with that name
+     */
+    public static Easing fromKey(String name) {
+        for (Easing easing : values()) {
+            if (easing.key.equalsIgnoreCase(name)) {
+                return easing;
+            }
+        }
+        return null;
+    }
+}
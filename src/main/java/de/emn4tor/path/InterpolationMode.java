@@ -0,0 +1,44 @@
+package de.emn4tor.path;
+
+/**
+ * The interpolation modes a script can choose with the "interpolation:" key
+ */
+public enum InterpolationMode {
+    LINEAR("linear", new LinearInterpolator()),
+    CATMULL_ROM("catmull-rom", new CatmullRomInterpolator()),
+    BEZIER("bezier", new BezierInterpolator());
+
+    private final String key;
+    private final Interpolator interpolator;
+
+    InterpolationMode(String key, Interpolator interpolator) {
+        this.key = key;
+        this.interpolator = interpolator;
+    }
+
+    /**
+     * Get the name used in scripts
+     * @return The script key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Interpolator getInterpolator() {
+        return interpolator;
+    }
+
+    /**
+     * Look up a mode by its script name
+     * @param name The name, case-insensitive
+     * @return The mode, or null if there is none with that name
+     */
+    public static InterpolationMode fromKey(String name) {
+        for (InterpolationMode mode : values()) {
+            if (mode.key.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
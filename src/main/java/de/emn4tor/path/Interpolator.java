@@ -0,0 +1,41 @@
+package de.emn4tor.path;
+
+/**
+ * Evaluates the curve between waypoints
+ * A path is split into segments, each running from one waypoint to a later one.
+ * Segments are evaluated at a curve parameter t in [0, 1]; {@link BakedPath}
+ * takes care of reparameterizing them by arc length.
+ */
+public interface Interpolator {
+    /**
+     * Get the number of segments through a number of waypoints
+     * @param waypoints The waypoint count, at least 2
+     * @return The segment count
+     */
+    int getSegmentCount(int waypoints);
+
+    /**
+     * Get the waypoint a segment starts at
+     * The segment ends where the next one starts, the last one at the last waypoint.
+     * @param segment The segment index
+     * @return The waypoint index
+     */
+    int getSegmentStart(int segment);
+
+    /**
+     * Get the number of samples used to measure the arc length of a segment
+     * @return 1 for straight segments, more for curves
+     */
+    int getSubdivisions();
+
+    /**
+     * Evaluate the position on a segment
+     * @param x The x coordinates of all waypoints
+     * @param y The y coordinates of all waypoints
+     * @param z The z coordinates of all waypoints
+     * @param segment The segment index
+     * @param t The curve parameter in [0, 1]
+     * @param out Receives x, y and z
+     */
+    void evaluate(double[] x, double[] y, double[] z, int segment, double t, double[] out);
+}
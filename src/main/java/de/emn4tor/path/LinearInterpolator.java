@@ -0,0 +1,29 @@
+package de.emn4tor.path;
+
+/**
+ * Straight lines between consecutive waypoints
+ */
+public class LinearInterpolator implements Interpolator {
+    @Override
+    public int getSegmentCount(int waypoints) {
+        return waypoints - 1;
+    }
+
+    @Override
+    public int getSegmentStart(int segment) {
+        return segment;
+    }
+
+    @Override
+    public int getSubdivisions() {
+        return 1;
+    }
+
+    @Override
+    public void evaluate(double[] x, double[] y, double[] z, int segment, double t, double[] out) {
+        int next = segment + 1;
+        out[0] = x[segment] + (x[next] - x[segment]) * t;
+        out[1] = y[segment] + (y[next] - y[segment]) * t;
+        out[2] = z[segment] + (z[next] - z[segment]) * t;
+    }
+}
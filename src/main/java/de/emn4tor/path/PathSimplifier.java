@@ -0,0 +1,164 @@
+package de.emn4tor.path;
+
+import java.util.Arrays;
+
+/**
+ * Drops waypoints that add nothing to the shape of a path
+ * Uses Ramer-Douglas-Peucker: a run of waypoints is replaced by its two ends as long
+ * as every waypoint in between stays within the position tolerance of the straight
+ * segment and within the angle tolerance of the blended view direction.
+ */
+public final class PathSimplifier {
+    private final double positionTolerance;
+    private final double angleTolerance;
+
+    /**
+     * @param positionTolerance The maximum distance in blocks a dropped waypoint may be from the simplified path
+     * @param angleTolerance The maximum yaw or pitch difference in degrees a dropped waypoint may have
+     */
+    public PathSimplifier(double positionTolerance, double angleTolerance) {
+        if (!(positionTolerance > 0) || !(angleTolerance > 0)) {
+            throw new IllegalArgumentException("Tolerances must be positive");
+        }
+        this.positionTolerance = positionTolerance;
+        this.angleTolerance = angleTolerance;
+    }
+
+    public double getPositionTolerance() {
+        return positionTolerance;
+    }
+
+    public double getAngleTolerance() {
+        return angleTolerance;
+    }
+
+    /**
+     * Find the waypoints to keep
+     * The first and last waypoint are always kept.
+     * @param pinned Waypoints that must be kept, such as speed keyframe anchors, or null
+     * @return The indices of the kept waypoints, in ascending order
+     */
+    public int[] simplify(double[] x, double[] y, double[] z, float[] yaw, float[] pitch, boolean[] pinned) {
+        int count = x.length;
+        if (count <= 2) {
+            int[] all = new int[count];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // Split at pinned waypoints first, then refine every span on its own
+        int[] stack = new int[64];
+        int top = 0;
+        int spanStart = 0;
+        for (int i = 1; i < count; i++) {
+            if (i == count - 1 || (pinned != null && pinned[i])) {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                keep[i] = true;
+                stack[top++] = spanStart;
+                stack[top++] = i;
+                spanStart = i;
+            }
+        }
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            if (end - start < 2) {
+                continue;
+            }
+
+            int worst = -1;
+            double worstError = 1.0;
+            for (int i = start + 1; i < end; i++) {
+                double error = error(x, y, z, yaw, pitch, start, end, i);
+                if (error > worstError) {
+                    worstError = error;
+                    worst = i;
+                }
+            }
+            if (worst < 0) {
+                continue;
+            }
+
+            keep[worst] = true;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = start;
+            stack[top++] = worst;
+            stack[top++] = worst;
+            stack[top++] = end;
+        }
+
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        int[] indices = new int[kept];
+        for (int i = 0, j = 0; i < count; i++) {
+            if (keep[i]) {
+                indices[j++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Measure how far a waypoint is from the segment between two kept waypoints
+     * @return The error relative to the tolerances, above 1 if the waypoint has to be kept
+     */
+    private double error(double[] x, double[] y, double[] z, float[] yaw, float[] pitch, int start, int end, int i) {
+        double dx = x[end] - x[start];
+        double dy = y[end] - y[start];
+        double dz = z[end] - z[start];
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = ((x[i] - x[start]) * dx + (y[i] - y[start]) * dy + (z[i] - z[start]) * dz) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+        }
+        double ex = x[start] + dx * t - x[i];
+        double ey = y[start] + dy * t - y[i];
+        double ez = z[start] + dz * t - z[i];
+        double distance = Math.sqrt(ex * ex + ey * ey + ez * ez);
+
+        // Compare against the view the camera would have at the same spot
+        float expectedYaw = BakedPath.blendAngle(yaw[start], yaw[end], t);
+        float expectedPitch = pitch[start] + (pitch[end] - pitch[start]) * (float) t;
+        double angle = Math.max(Math.abs(BakedPath.wrapDegrees(yaw[i] - expectedYaw)),
+                Math.abs(pitch[i] - expectedPitch));
+
+        return Math.max(distance / positionTolerance, angle / angleTolerance);
+    }
+
+    /**
+     * Copy the kept entries of an array
+     */
+    public static double[] select(double[] values, int[] indices) {
+        double[] selected = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * Copy the kept entries of an array
+     */
+    public static float[] select(float[] values, int[] indices) {
+        float[] selected = new float[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,89 @@
+package de.emn4tor.path;
+
+/**
+ * Places a path somewhere else in the world
+ * The path is turned around the vertical axis through its origin and the origin is
+ * then moved to an anchor, so a drive written relative to 0,0,0 can be reused anywhere.
+ */
+public final class PathTransform {
+    public static final PathTransform IDENTITY = new PathTransform(0, 0, 0, 0);
+
+    private final double x;
+    private final double y;
+    private final double z;
+    private final float rotation; // degrees, the same direction as yaw
+    private final double cos;
+    private final double sin;
+
+    /**
+     * @param x The x coordinate of the anchor
+     * @param y The y coordinate of the anchor
+     * @param z The z coordinate of the anchor
+     * @param rotation The turn around the anchor in degrees, added to the yaw of every frame
+     */
+    public PathTransform(double x, double y, double z, float rotation) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.rotation = rotation;
+
+        // Quarter turns are the common case, so keep them exact instead of off by 1e-16
+        if (rotation % 90 == 0) {
+            int quarter = Math.floorMod((int) (rotation / 90), 4);
+            this.cos = quarter == 0 ? 1 : quarter == 2 ? -1 : 0;
+            this.sin = quarter == 1 ? 1 : quarter == 3 ? -1 : 0;
+        } else {
+            double radians = Math.toRadians(rotation);
+            this.cos = Math.cos(radians);
+            this.sin = Math.sin(radians);
+        }
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    public boolean isIdentity() {
+        return x == 0 && y == 0 && z == 0 && rotation == 0;
+    }
+
+    /**
+     * Get the x coordinate of a point of the path in the world
+     * @param x The x coordinate relative to the path origin
+     * @param z The z coordinate relative to the path origin
+     * @return The world x coordinate
+     */
+    public double applyX(double x, double z) {
+        return this.x + x * cos - z * sin;
+    }
+
+    public double applyY(double y) {
+        return this.y + y;
+    }
+
+    /**
+     * Get the z coordinate of a point of the path in the world
+     * @param x The x coordinate relative to the path origin
+     * @param z The z coordinate relative to the path origin
+     * @return The world z coordinate
+     */
+    public double applyZ(double x, double z) {
+        return this.z + x * sin + z * cos;
+    }
+
+    public float applyYaw(float yaw) {
+        return yaw + rotation;
+    }
+}
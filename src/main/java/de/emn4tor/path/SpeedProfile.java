@@ -0,0 +1,149 @@
+package de.emn4tor.path;
+
+import java.util.Arrays;
+
+/**
+ * The speed of a drive along its path
+ * Starts at a base speed and changes at keyframes, each anchored to a waypoint.
+ * With {@link Easing#STEP} the speed switches at the keyframe; any other easing
+ * blends from the previous keyframe's speed over the distance between the two.
+ */
+public final class SpeedProfile {
+    private static final int MAX_FRAMES = BakedPath.TICKS_PER_SECOND * 60 * 60 * 6; // six hours
+
+    private final double baseSpeed;
+    private final int[] waypoints; // ascending
+    private final double[] speeds;
+    private final Easing[] easings;
+
+    /**
+     * @param baseSpeed The speed at the start of the path, in blocks per second
+     * @param waypoints The waypoint index of each keyframe
+     * @param speeds The speed each keyframe reaches, in blocks per second
+     * @param easings How the speed changes on the way to each keyframe
+     */
+    public SpeedProfile(double baseSpeed, int[] waypoints, double[] speeds, Easing[] easings) {
+        if (!(baseSpeed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive, got " + baseSpeed);
+        }
+
+        // Sort keyframes by waypoint, keeping the script order for keyframes on the same waypoint
+        Integer[] order = new Integer[waypoints.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(waypoints[a], waypoints[b]));
+
+        this.baseSpeed = baseSpeed;
+        this.waypoints = new int[order.length];
+        this.speeds = new double[order.length];
+        this.easings = new Easing[order.length];
+        for (int i = 0; i < order.length; i++) {
+            if (!(speeds[order[i]] > 0)) {
+                throw new IllegalArgumentException("Speed must be positive, got " + speeds[order[i]]);
+            }
+            this.waypoints[i] = waypoints[order[i]];
+            this.speeds[i] = speeds[order[i]];
+            this.easings[i] = easings[order[i]];
+        }
+    }
+
+    /**
+     * Create a profile without keyframes
+     * @param speed The speed in blocks per second
+     * @return The constant speed profile
+     */
+    public static SpeedProfile constant(double speed) {
+        return new SpeedProfile(speed, new int[0], new double[0], new Easing[0]);
+    }
+
+    public double getBaseSpeed() {
+        return baseSpeed;
+    }
+
+    public int getKeyframeCount() {
+        return waypoints.length;
+    }
+
+    public int getKeyframeWaypoint(int keyframe) {
+        return waypoints[keyframe];
+    }
+
+    public double getKeyframeSpeed(int keyframe) {
+        return speeds[keyframe];
+    }
+
+    public Easing getKeyframeEasing(int keyframe) {
+        return easings[keyframe];
+    }
+
+    /**
+     * Compile the profile into the distance travelled at every tick
+     * The result is indexed by tick, so looking up a position at runtime never
+     * depends on the number of keyframes.
+     * @param waypointDistance The arc length at each waypoint
+     * @param length The total length of the path
+     * @return The distance along the path at each tick, ending exactly at the length
+     */
+    double[] compile(double[] waypointDistance, double length) {
+        if (!(length > 0)) {
+            return new double[] {0};
+        }
+
+        // The base speed acts as a keyframe at the start of the path
+        int keys = waypoints.length + 1;
+        double[] keyDistance = new double[keys];
+        double[] keySpeed = new double[keys];
+        keySpeed[0] = baseSpeed;
+        for (int i = 0; i < waypoints.length; i++) {
+            keyDistance[i + 1] = waypointDistance[Math.min(waypoints[i], waypointDistance.length - 1)];
+            keySpeed[i + 1] = speeds[i];
+        }
+
+        double dt = 1.0 / BakedPath.TICKS_PER_SECOND;
+        double[] distance = new double[Math.max(2, (int) Math.min(MAX_FRAMES, length / baseSpeed * BakedPath.TICKS_PER_SECOND + 2))];
+        int frames = 1;
+        int key = 0;
+        double s = 0;
+
+        while (s < length) {
+            // Midpoint step, so eased changes don't lag behind by a tick
+            key = advance(keyDistance, key, s);
+            double half = s + 0.5 * dt * speedAt(keyDistance, keySpeed, key, s);
+            double v = speedAt(keyDistance, keySpeed, advance(keyDistance, key, half), half);
+            s = Math.min(s + v * dt, length);
+
+            if (frames == distance.length) {
+                if (frames >= MAX_FRAMES) {
+                    throw new IllegalArgumentException("Drive would take longer than "
+                            + MAX_FRAMES / BakedPath.TICKS_PER_SECOND / 3600 + " hours");
+                }
+                distance = Arrays.copyOf(distance, Math.min(frames * 2, MAX_FRAMES));
+            }
+            distance[frames++] = s;
+        }
+
+        return Arrays.copyOf(distance, frames);
+    }
+
+    private static int advance(double[] keyDistance, int key, double s) {
+        while (key + 1 < keyDistance.length && keyDistance[key + 1] <= s) {
+            key++;
+        }
+        return key;
+    }
+
+    private double speedAt(double[] keyDistance, double[] keySpeed, int key, double s) {
+        if (key + 1 >= keyDistance.length) {
+            return keySpeed[key];
+        }
+
+        Easing easing = easings[key];
+        double span = keyDistance[key + 1] - keyDistance[key];
+        if (easing == Easing.STEP || span <= 0) {
+            return keySpeed[key];
+        }
+        double t = (s - keyDistance[key]) / span;
+        return keySpeed[key] + (keySpeed[key + 1] - keySpeed[key]) * easing.apply(t);
+    }
+}
@@ -0,0 +1,58 @@
+package de.emn4tor.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Runs everything on the main thread through the classic Bukkit scheduler
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+
+    public BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public SchedulerTask runGlobalTimer(Runnable task, long delay, long period) {
+        BukkitTask bukkitTask = plugin.getServer().getScheduler().runTaskTimer(plugin, task, delay, period);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            runGlobal(task);
+        }
+    }
+
+    @Override
+    public SchedulerTask runForTimer(Entity entity, Runnable task, Runnable retired, long delay, long period) {
+        return runGlobalTimer(task, delay, period);
+    }
+
+    @Override
+    public void teleport(Entity entity, Location location) {
+        entity.teleport(location);
+    }
+
+    @Override
+    public void rotate(Entity entity, float yaw, float pitch) {
+        entity.setRotation(yaw, pitch);
+    }
+}
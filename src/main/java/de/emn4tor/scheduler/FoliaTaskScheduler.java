@@ -0,0 +1,74 @@
+package de.emn4tor.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Runs tasks on Folia's global region and per-entity schedulers
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+
+    public FoliaTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    @Override
+    public SchedulerTask runGlobalTimer(Runnable task, long delay, long period) {
+        ScheduledTask scheduled = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> task.run(), delay, period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            task.run();
+        } else {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        }
+    }
+
+    @Override
+    public SchedulerTask runForTimer(Entity entity, Runnable task, Runnable retired, long delay, long period) {
+        ScheduledTask scheduled = entity.getScheduler().runAtFixedRate(plugin, t -> task.run(), retired, delay, period);
+        if (scheduled == null) {
+            // The entity was removed before the task could be scheduled
+            retired.run();
+            return SchedulerTask.NONE;
+        }
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void teleport(Entity entity, Location location) {
+        // The caller reuses the location, while the teleport may still read it later
+        Location target = location.clone();
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            entity.teleportAsync(target);
+        } else {
+            entity.getScheduler().execute(plugin, () -> entity.teleportAsync(target), null, 1L);
+        }
+    }
+
+    @Override
+    public void rotate(Entity entity, float yaw, float pitch) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            entity.setRotation(yaw, pitch);
+        } else {
+            entity.getScheduler().execute(plugin, () -> entity.setRotation(yaw, pitch), null, 1L);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.emn4tor.scheduler;
+
+/**
+ * A repeating task that was scheduled through a {@link TaskScheduler}
+ */
+public interface SchedulerTask {
+    /** A task that was never scheduled, for example because its entity was already gone */
+    SchedulerTask NONE = () -> { };
+
+    /**
+     * Stop the task from running again
+     */
+    void cancel();
+}
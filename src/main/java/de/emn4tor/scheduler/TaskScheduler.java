@@ -0,0 +1,84 @@
+package de.emn4tor.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Schedules plugin work on the thread that owns it
+ * On Paper everything runs on the main thread. On Folia the server is split into
+ * regions that tick in parallel, so work on an entity has to run on the entity's
+ * own scheduler and global work on the global region.
+ */
+public interface TaskScheduler {
+    /**
+     * Pick the scheduler matching the server the plugin runs on
+     * @param plugin The plugin that owns the tasks
+     * @return A Folia scheduler on regionized servers, otherwise the classic Bukkit scheduler
+     */
+    static TaskScheduler create(Plugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return new FoliaTaskScheduler(plugin);
+        } catch (ClassNotFoundException e) {
+            return new BukkitTaskScheduler(plugin);
+        }
+    }
+
+    /**
+     * Check if the server ticks regions on separate threads
+     * @return True on Folia
+     */
+    boolean isRegionized();
+
+    /**
+     * Run a task on the main thread, or on the global region on Folia
+     * @param task The task to run
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Repeat a task on the main thread, or on the global region on Folia
+     * @param task The task to run
+     * @param delay Ticks before the first run, at least 1
+     * @param period Ticks between runs
+     * @return The scheduled task
+     */
+    SchedulerTask runGlobalTimer(Runnable task, long delay, long period);
+
+    /**
+     * Run a task on the thread that owns an entity, immediately if that is the current thread
+     * @param entity The entity the task works on
+     * @param task The task to run
+     */
+    void runFor(Entity entity, Runnable task);
+
+    /**
+     * Repeat a task on the thread that owns an entity, following it across regions
+     * @param entity The entity the task works on
+     * @param task The task to run
+     * @param retired Run instead once the entity is removed, for example when a player quits
+     * @param delay Ticks before the first run, at least 1
+     * @param period Ticks between runs
+     * @return The scheduled task
+     */
+    SchedulerTask runForTimer(Entity entity, Runnable task, Runnable retired, long delay, long period);
+
+    /**
+     * Move an entity the way the server supports it
+     * Folia does not allow synchronous teleports, so they are done asynchronously there.
+     * The location may be reused by the caller afterwards.
+     * @param entity The entity to move
+     * @param location The target location
+     */
+    void teleport(Entity entity, Location location);
+
+    /**
+     * Turn an entity without moving it
+     * For players this sends only a rotation update instead of a full teleport.
+     * @param entity The entity to turn
+     * @param yaw The new yaw
+     * @param pitch The new pitch
+     */
+    void rotate(Entity entity, float yaw, float pitch);
+}
@@ -0,0 +1,25 @@
+package de.emn4tor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A small run of the tick simulation, checked on every build
+ * The large run with the throughput report is ./gradlew simulate.
+ */
+class TickDeterminismTest {
+    @Test
+    void everyPlayerTakesTheSamePathInEveryRun() throws ScriptParseException {
+        TickSimulation simulation = new TickSimulation(300, TickSimulation.generateScripts(20), 300);
+
+        TickSimulation.Result first = simulation.run();
+        TickSimulation.Result second = simulation.run();
+
+        assertTrue(first.getTeleports() > 0, "The simulation sent no teleports");
+        assertEquals(first.getTeleports(), second.getTeleports());
+        assertArrayEquals(first.getChecksums(), second.getChecksums());
+    }
+}